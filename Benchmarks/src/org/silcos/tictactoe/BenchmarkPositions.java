@@ -0,0 +1,115 @@
+package org.silcos.tictactoe;
+
+import java.util.Random;
+
+/**
+ * Sets up the boards & games measured by the benchmarks. A board is filled
+ * with random moves from a fixed seed, none of which wins, so that each
+ * benchmark measures the same positions on every run.
+ * 
+ * @author Shukant Pal
+ */
+public final class BenchmarkPositions {
+	
+	/**
+	 * The stage of the game at which a board is measured.
+	 */
+	public enum Fill {
+		EMPTY,
+		MID_GAME,
+		NEAR_FULL
+	}
+	
+	public static final long SEED = 42;
+	
+	private BenchmarkPositions() {
+	}
+	
+	/**
+	 * Returns the no. of moves made on a board of the given side to reach
+	 * the given stage: none, half of the squares, or all but a tenth of the
+	 * squares (at least two).
+	 */
+	public static int movesFor(int side, Fill fill) {
+		int area = side * side;
+		
+		switch(fill) {
+		case EMPTY:
+			return (0);
+		case MID_GAME:
+			return (area / 2);
+		default:
+			return (area - Math.max(2, area / 10));
+		}
+	}
+	
+	/**
+	 * Makes random moves on the given board until it reaches the given stage,
+	 * skipping any move which would win the game. Stops early if every empty
+	 * square would win.
+	 */
+	public static void fill(Board board, Fill fill) {
+		Random random = new Random(SEED);
+		int moves = movesFor(board.getSide(), fill);
+		
+		while(board.getArea() - board.getEmptyArea() < moves) {
+			int tries = board.getEmptyArea();
+			boolean moved = false;
+			
+			while(tries-- > 0 && !moved) {
+				int cell = board.randomEmptyCell(random);
+				
+				board.makeMove(cell / board.getSide(), cell % board.getSide());
+				
+				if(board.findWinner() == MoveType.EMPTY)
+					moved = true;
+				else
+					board.unmakeMove();
+			}
+			
+			if(!moved)
+				return;
+		}
+	}
+	
+	/**
+	 * Instantiates a two-player game, in which no <tt>ComputerPlayer</tt> is
+	 * scheduled after a move, filled to the given stage.
+	 */
+	public static GameController newGame(int side, Fill fill) {
+		GameController game = new GameController(side);
+		
+		fill(game.gameSet, fill);
+		game.nextTurn = game.gameSet.getNextState();
+		game.snapshot = game.gameSet.snapshot();
+		
+		return (game);
+	}
+	
+	public static Board boardOf(GameController game) {
+		return (game.gameSet);
+	}
+	
+	/**
+	 * Takes back the last move of the given game, restoring the turn & the
+	 * state of the game before it.
+	 */
+	public static void takeBack(GameController game) {
+		game.gameSet.unmakeMove();
+		game.nextTurn = game.gameSet.getNextState();
+		game.finished = false;
+		game.snapshot = game.gameSet.snapshot();
+	}
+	
+	public static GameController.Bridge bridgeOf(GameController game) {
+		return (game.playerBridge);
+	}
+	
+	/**
+	 * Returns the player of the given side in the game.
+	 */
+	public static Player playerOf(GameController game, MoveType side) {
+		return ((side == MoveType.O) ? game.o : game.x);
+	}
+
+}
@@ -0,0 +1,76 @@
+package org.silcos.tictactoe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the analysis of a <tt>Board</tt> by a <tt>BoardAnalyzer</tt>:
+ * a full <tt>analyze()</tt> of the position, which replaced <tt>
+ * newAnalyzer</tt>, and the incremental update of an attached analyzer
+ * after a move & its <tt>unmakeMove</tt>.
+ * 
+ * @author Shukant Pal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardAnalyzerBenchmark {
+	
+	@Param({ "3", "4", "5", "6", "7", "8", "9", "10", "11" })
+	int side;
+	
+	@Param({ "EMPTY", "MID_GAME", "NEAR_FULL" })
+	BenchmarkPositions.Fill fill;
+	
+	Board board;
+	BoardAnalyzer analyzer;
+	Board attachedBoard;
+	BoardAnalyzer attachedAnalyzer;
+	int moveIndex;
+	
+	@Setup
+	public void setUp() {
+		board = new Board(side);
+		BenchmarkPositions.fill(board, fill);
+		analyzer = new BoardAnalyzer(board);
+		
+		attachedBoard = new Board(side);
+		BenchmarkPositions.fill(attachedBoard, fill);
+		attachedAnalyzer = new BoardAnalyzer(attachedBoard);
+		attachedAnalyzer.attach();
+	}
+	
+	@Benchmark
+	public int analyze() {
+		analyzer.analyze();
+		return (analyzer.getBestCell(board.getNextState()));
+	}
+	
+	@Benchmark
+	public int incrementalMove() {
+		int cell = attachedBoard.getEmptyCell(moveIndex);
+		
+		if(++(moveIndex) == attachedBoard.getEmptyArea())
+			moveIndex = 0;
+		
+		attachedBoard.makeMove(cell / side, cell % side);
+		attachedBoard.unmakeMove();
+		
+		return (attachedAnalyzer.getBestCell(MoveType.O));
+	}
+
+}
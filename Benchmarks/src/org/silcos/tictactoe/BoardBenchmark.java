@@ -0,0 +1,78 @@
+package org.silcos.tictactoe;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the moves & queries of a <tt>Board</tt> on each supported side,
+ * at each stage of the game. A move is measured along with the <tt>
+ * unmakeMove</tt> taking it back, so that every invocation sees the same
+ * position.
+ * 
+ * @author Shukant Pal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+	
+	@Param({ "3", "4", "5", "6", "7", "8", "9", "10", "11" })
+	int side;
+	
+	@Param({ "EMPTY", "MID_GAME", "NEAR_FULL" })
+	BenchmarkPositions.Fill fill;
+	
+	Board board;
+	Board.LineIterator rowIterator;
+	int moveIndex;
+	
+	@Setup
+	public void setUp() {
+		board = new Board(side);
+		BenchmarkPositions.fill(board, fill);
+		rowIterator = board.rowIterator();
+	}
+	
+	/**
+	 * Fills the next of the empty squares in turn with <tt>setState</tt>,
+	 * and empties it again.
+	 */
+	@Benchmark
+	public boolean setState() {
+		int cell = board.getEmptyCell(moveIndex);
+		
+		if(++(moveIndex) == board.getEmptyArea())
+			moveIndex = 0;
+		
+		boolean filled = board.setState(board.getNextState(), cell / side, cell % side);
+		
+		board.unmakeMove();
+		return (filled);
+	}
+	
+	@Benchmark
+	public MoveType findWinner() {
+		return (board.findWinner());
+	}
+	
+	@Benchmark
+	public Board.LineIterator getCapturable() {
+		rowIterator.setLineIndex(0);
+		return (BoardAnalyzer.getCapturable(rowIterator, board.getNextState()));
+	}
+
+}
@@ -0,0 +1,80 @@
+package org.silcos.tictactoe;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures <tt>GameController.Bridge.notifyMove</tt>, i.e. the work done
+ * by the controller after each move: passing the turn, calling the move
+ * handlers and checking for a winner. The game has two human players, so
+ * that no computer move is scheduled. Each invocation makes a move on the
+ * same empty square & takes it back after notifying the game, so that
+ * every invocation sees the same position.
+ * 
+ * @author Shukant Pal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BridgeBenchmark {
+	
+	@Param({ "3", "4", "5", "6", "7", "8", "9", "10", "11" })
+	int side;
+	
+	@Param({ "EMPTY", "MID_GAME", "NEAR_FULL" })
+	BenchmarkPositions.Fill fill;
+	
+	GameController game;
+	Board board;
+	GameController.Bridge bridge;
+	Player mover;
+	int row;
+	int column;
+	
+	@Setup
+	public void setUp() {
+		game = BenchmarkPositions.newGame(side, fill);
+		board = BenchmarkPositions.boardOf(game);
+		bridge = BenchmarkPositions.bridgeOf(game);
+		mover = BenchmarkPositions.playerOf(game, board.getNextState());
+		
+		int cell = board.randomEmptyCell(new Random(BenchmarkPositions.SEED));
+		
+		row = cell / side;
+		column = cell % side;
+		game.addMoveHandler((MoveType playerSide, int rowIdx, int colIdx) -> {
+		});
+	}
+	
+	@TearDown
+	public void tearDown() {
+		game.close();
+	}
+	
+	@Benchmark
+	public MoveResult notifyMove() {
+		board.setState(mover.assignedSide(), row, column);
+		
+		MoveResult result = bridge.notifyMove(mover, row, column);
+		
+		BenchmarkPositions.takeBack(game);
+		return (result);
+	}
+
+}
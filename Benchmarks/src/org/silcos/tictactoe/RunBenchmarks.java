@@ -0,0 +1,29 @@
+package org.silcos.tictactoe;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH command-line options given, adding the
+ * GC profiler so that the allocation rate & the bytes allocated per
+ * operation are always reported.
+ * 
+ * @author Shukant Pal
+ */
+public final class RunBenchmarks {
+	
+	private RunBenchmarks() {
+	}
+	
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+
+}
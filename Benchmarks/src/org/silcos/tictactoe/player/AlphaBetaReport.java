@@ -0,0 +1,50 @@
+package org.silcos.tictactoe.player;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints the nodes an <tt>AlphaBetaEngine</tt> searches to reach a fixed
+ * depth from the empty board on 5x5 to 9x9 boards, without and with move
+ * ordering, along with its cutoffs.
+ * 
+ * @author Shukant Pal
+ */
+public final class AlphaBetaReport {
+	
+	/**
+	 * The time given to the searches, which end at the depth limit instead.
+	 */
+	private static final long UNLIMITED_TIME = TimeUnit.DAYS.toMillis(1);
+	
+	private AlphaBetaReport() {
+	}
+	
+	/**
+	 * @param args - the depth to be searched; 6 by default
+	 */
+	public static void main(String[] args) {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 6;
+		TranspositionTable table = new TranspositionTable(TranspositionTable.DEFAULT_BUDGET * 8);
+		
+		System.out.println("Nodes to depth " + depth + " from the empty board:");
+		System.out.println("side\tordering\tnodes\tcutoffs\tfirst-move cutoffs\tmillis");
+		
+		for(int side = 5; side <= 9; side++) {
+			for(int pass = 0; pass < 2; pass++) {
+				AlphaBetaEngine engine = new AlphaBetaEngine(table);
+				
+				engine.setMaxDepth(depth);
+				engine.setMoveOrdering(pass == 1);
+				table.clear();
+				
+				long start = System.nanoTime();
+				engine.search(new BitBoard(side), UNLIMITED_TIME);
+				long millis = (System.nanoTime() - start) / 1000000L;
+				
+				System.out.println(side + "\t" + ((pass == 1) ? "on" : "off") + "\t" + engine.getNodes()
+						+ "\t" + engine.getCutoffs() + "\t" + engine.getFirstMoveCutoffs() + "\t" + millis);
+			}
+		}
+	}
+
+}
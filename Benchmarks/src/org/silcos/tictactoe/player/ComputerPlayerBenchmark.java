@@ -0,0 +1,69 @@
+package org.silcos.tictactoe.player;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.silcos.tictactoe.BenchmarkPositions;
+import org.silcos.tictactoe.Board;
+import org.silcos.tictactoe.GameController;
+
+/**
+ * Measures <tt>ComputerPlayer.play</tt> in the <tt>EASY</tt> & <tt>MEDIUM
+ * </tt> modes, including the submission of its move to the game. <tt>HARD</tt> is
+ * left out, as its searches run for a fixed time. The move is taken back
+ * after each play, so that every invocation sees the same position.
+ * 
+ * @author Shukant Pal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputerPlayerBenchmark {
+	
+	@Param({ "3", "4", "5", "6", "7", "8", "9", "10", "11" })
+	int side;
+	
+	@Param({ "EMPTY", "MID_GAME", "NEAR_FULL" })
+	BenchmarkPositions.Fill fill;
+	
+	@Param({ "EASY", "MEDIUM" })
+	ComputerPlayer.Mode mode;
+	
+	GameController game;
+	Board board;
+	ComputerPlayer player;
+	
+	@Setup
+	public void setUp() {
+		game = BenchmarkPositions.newGame(side, fill);
+		board = BenchmarkPositions.boardOf(game);
+		player = new ComputerPlayer(BenchmarkPositions.bridgeOf(game), board, board.getNextState());
+		player.setMode(mode);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		game.close();
+	}
+	
+	@Benchmark
+	public void play() {
+		player.play();
+		BenchmarkPositions.takeBack(game);
+		player.moves.clear();
+	}
+
+}
@@ -0,0 +1,52 @@
+package org.silcos.tictactoe.player;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints the time a <tt>LazySmpEngine</tt> takes to search the empty board
+ * to a given depth, for each thread count from 1 up to all available
+ * processors. The table is cleared before each measurement.
+ * 
+ * @author Shukant Pal
+ */
+public final class LazySmpReport {
+	
+	/**
+	 * The time given to the searches, which end at the depth limit instead.
+	 */
+	private static final long UNLIMITED_TIME = TimeUnit.DAYS.toMillis(1);
+	
+	private LazySmpReport() {
+	}
+	
+	/**
+	 * @param args - optionally, the side of the board (default 5) and the
+	 * 				depth to be reached (default 8).
+	 */
+	public static void main(String[] args) {
+		int side = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+		int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+		int processors = Runtime.getRuntime().availableProcessors();
+		TranspositionTable table = new TranspositionTable(TranspositionTable.DEFAULT_BUDGET * 8);
+		
+		System.out.println("Time to depth " + depth + " on a " + side + "x" + side + " board:");
+		System.out.println("threads\tmillis\tnodes");
+		
+		for(int threads = 1; threads <= processors; threads++) {
+			LazySmpEngine engine = new LazySmpEngine(table, threads);
+			
+			engine.setMaxDepth(depth);
+			table.clear();
+			engine.search(new BitBoard(side), UNLIMITED_TIME);/* Warm-up */
+			table.clear();
+			
+			long start = System.nanoTime();
+			engine.search(new BitBoard(side), UNLIMITED_TIME);
+			long millis = (System.nanoTime() - start) / 1000000L;
+			
+			System.out.println(threads + "\t" + millis + "\t" + engine.getNodes());
+			engine.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+package org.silcos.tictactoe.player;
+
+import org.silcos.tictactoe.player.ParallelMonteCarloEngine.Parallelism;
+
+/**
+ * Prints the playouts per second of a <tt>ParallelMonteCarloEngine</tt>, in
+ * both kinds of parallelism, for each thread count from 1 up to all
+ * available processors.
+ * 
+ * @author Shukant Pal
+ */
+public final class ParallelMonteCarloReport {
+	
+	private ParallelMonteCarloReport() {
+	}
+	
+	/**
+	 * @param args - optionally, the side of the board (default 9) and the
+	 * 				time of each measurement in milliseconds (default 2000).
+	 */
+	public static void main(String[] args) {
+		int side = (args.length > 0) ? Integer.parseInt(args[0]) : 9;
+		long millis = (args.length > 1) ? Long.parseLong(args[1]) : 2000;
+		int processors = Runtime.getRuntime().availableProcessors();
+		
+		System.out.println("Playouts per second on a " + side + "x" + side + " board:");
+		System.out.println("threads\tTREE\tROOT");
+		
+		for(int threads = 1; threads <= processors; threads++) {
+			StringBuilder row = new StringBuilder().append(threads);
+			
+			for(Parallelism parallelism : Parallelism.values()) {
+				ParallelMonteCarloEngine engine = new ParallelMonteCarloEngine(parallelism, threads,
+						MonteCarloEngine.DEFAULT_CAPACITY, 0);
+				
+				engine.measurePlayoutRate(side, millis / 4);/* Warm-up */
+				row.append('\t').append(Math.round(engine.measurePlayoutRate(side, millis)));
+				engine.shutdown();
+			}
+			
+			System.out.println(row);
+		}
+	}
+
+}
@@ -0,0 +1,318 @@
+package org.silcos.tictactoe;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * Runs the moves of the <tt>ComputerPlayer</tt>s of all games on a bounded
+ * no. of worker threads, shared by the process. Each game submits its moves
+ * to its own <tt>GameQueue</tt>, whose tasks run one at a time & in order.
+ * The games with pending tasks take turns on the workers: after a task has
+ * run, its game goes to the back of the line.
+ * 
+ * <p>
+ * A task is either <tt>SHORT</tt> (the <tt>EASY</tt> & <tt>MEDIUM</tt>
+ * modes, which reply at once) or <tt>LONG</tt> (the <tt>HARD</tt> searches,
+ * which run for the move-time). Games whose next task is short are always
+ * served first. A scheduler of <tt>n</tt> workers runs at most <tt>n</tt>
+ * long tasks at a time, but has one more worker which only short tasks can
+ * take, so that a quick reply is not stuck behind the searches of other
+ * games, even with a single processor.
+ * 
+ * <p>
+ * Workers are started only when a task is submitted and none is idle, so a
+ * process hosting only two-player games starts none.
+ * 
+ * @author Shukant Pal
+ */
+public final class AiScheduler {
+	
+	public enum Priority {
+		SHORT,
+		LONG
+	}
+	
+	/**
+	 * The system property giving the no. of workers of the shared scheduler
+	 * which can run long tasks; by default, the no. of processors.
+	 */
+	public static final String THREADS_PROPERTY = "tictactoe.ai.threads";
+	
+	private static class SharedHolder {
+		static final AiScheduler SHARED = new AiScheduler(Integer.getInteger(THREADS_PROPERTY,
+				Runtime.getRuntime().availableProcessors()));
+	}
+	
+	/**
+	 * A task of a <tt>GameQueue</tt>, along with its priority.
+	 */
+	private static class Task<V> extends FutureTask<V> {
+		
+		final Priority priority;
+		
+		Task(Callable<V> callable, Priority priority) {
+			super(callable);
+			this.priority = priority;
+		}
+	
+	}
+	
+	/**
+	 * The tasks of a single game. They are run in the order submitted, and
+	 * never two at once, so a task can use the board of its game without
+	 * locking.
+	 * 
+	 * @author Shukant Pal
+	 */
+	public final class GameQueue {
+		
+		private final ArrayDeque<Task<?>> pending = new ArrayDeque<Task<?>>();
+		
+		/**
+		 * Whether this game is waiting in <tt>shortGames</tt> or <tt>
+		 * longGames</tt>.
+		 */
+		private boolean queued;
+		
+		/**
+		 * The worker running a task of this game; <tt>null</tt>, if none is.
+		 */
+		private Thread runner;
+		private boolean closed;
+		
+		private GameQueue() {
+		}
+		
+		/**
+		 * Queues the given task to run after the earlier tasks of this game.
+		 * 
+		 * @param task - the task to run
+		 * @param priority - whether the task replies at once or searches
+		 * @return a <tt>Future</tt> completed once the task has run
+		 * @throws RejectedExecutionException if this queue has been closed
+		 */
+		public <V> Future<V> submit(Callable<V> task, Priority priority) {
+			Task<V> queuedTask = new Task<V>(task, priority);
+			
+			lock.lock();
+			try {
+				if(closed)
+					throw new RejectedExecutionException("The game has been closed");
+				
+				pending.add(queuedTask);
+				
+				if(!queued && runner == null) {
+					enqueue(this);
+					wakeWorker();
+				}
+			} finally {
+				lock.unlock();
+			}
+			
+			return (queuedTask);
+		}
+		
+		/**
+		 * Cancels the pending tasks of this game & interrupts the one running,
+		 * if any. No tasks can be submitted afterwards.
+		 */
+		public void close() {
+			lock.lock();
+			try {
+				closed = true;
+				
+				for(Task<?> task : pending)
+					task.cancel(false);
+				
+				pending.clear();
+				
+				if(runner != null)
+					runner.interrupt();
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		public boolean isClosed() {
+			lock.lock();
+			try {
+				return (closed);
+			} finally {
+				lock.unlock();
+			}
+		}
+	
+	}
+	
+	/**
+	 * The no. of worker threads which can be started: <tt>maxLongWorkers</tt>,
+	 * plus one kept for short tasks.
+	 */
+	private final int maxWorkers;
+	private final int maxLongWorkers;
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition workReady = lock.newCondition();
+	private final ArrayDeque<GameQueue> shortGames = new ArrayDeque<GameQueue>();
+	private final ArrayDeque<GameQueue> longGames = new ArrayDeque<GameQueue>();
+	
+	private int workers;
+	private int idleWorkers;
+	
+	/**
+	 * The no. of idle workers signalled, which have not woken up yet.
+	 */
+	private int wakeups;
+	private int longWorkers;
+	
+	/**
+	 * Instantiates an <tt>AiScheduler</tt> running at most <tt>maxWorkers
+	 * </tt> long tasks at a time, on at most <tt>maxWorkers + 1</tt> worker
+	 * threads.
+	 * 
+	 * @param maxWorkers - the no. of worker threads which can run long tasks
+	 */
+	public AiScheduler(int maxWorkers) {
+		if(maxWorkers < 1)
+			throw new IllegalArgumentException("A scheduler needs at least one worker");
+		
+		this.maxWorkers = maxWorkers + 1;
+		this.maxLongWorkers = maxWorkers;
+	}
+	
+	/**
+	 * Returns the scheduler shared by all games of the process.
+	 */
+	public static AiScheduler shared() {
+		return (SharedHolder.SHARED);
+	}
+	
+	/**
+	 * Returns a new queue for the tasks of a game.
+	 */
+	public GameQueue newQueue() {
+		return (new GameQueue());
+	}
+	
+	/**
+	 * Returns the no. of worker threads which can be started, including the
+	 * one kept for short tasks.
+	 */
+	public int getMaxWorkers() {
+		return (maxWorkers);
+	}
+	
+	/**
+	 * Returns the no. of worker threads started so far.
+	 */
+	public int getWorkers() {
+		lock.lock();
+		try {
+			return (workers);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Puts the given game at the back of the line for the priority of its
+	 * next task. Must be called while holding <tt>lock</tt>.
+	 */
+	private void enqueue(GameQueue game) {
+		game.queued = true;
+		
+		if(game.pending.peek().priority == Priority.SHORT)
+			shortGames.add(game);
+		else
+			longGames.add(game);
+	}
+	
+	/**
+	 * Wakes an idle worker, or starts one if none is idle & fewer than <tt>
+	 * maxWorkers</tt> are running. Must be called while holding <tt>lock</tt>.
+	 */
+	private void wakeWorker() {
+		if(idleWorkers > wakeups) {
+			++(wakeups);
+			workReady.signal();
+		} else if(workers < maxWorkers) {
+			Thread worker = new Thread(this::work, "AiScheduler-worker");
+			worker.setDaemon(true);
+			worker.start();
+			++(workers);
+		}
+	}
+	
+	/**
+	 * Returns the next game to be served, or <tt>null</tt> if none can be.
+	 * Must be called while holding <tt>lock</tt>.
+	 */
+	private GameQueue nextGame() {
+		if(!shortGames.isEmpty())
+			return (shortGames.poll());
+		
+		if(!longGames.isEmpty() && longWorkers < maxLongWorkers)
+			return (longGames.poll());
+		
+		return (null);
+	}
+	
+	private void work() {
+		for(;;) {
+			GameQueue game;
+			Task<?> task;
+			
+			lock.lock();
+			try {
+				while((game = nextGame()) == null) {
+					++(idleWorkers);
+					workReady.awaitUninterruptibly();
+					--(idleWorkers);
+					
+					if(wakeups > 0)
+						--(wakeups);
+				}
+				
+				game.queued = false;
+				task = game.pending.poll();
+				
+				// The game was closed while it waited in line
+				if(task == null)
+					continue;
+				
+				game.runner = Thread.currentThread();
+				
+				if(task.priority == Priority.LONG)
+					++(longWorkers);
+			} finally {
+				lock.unlock();
+			}
+			
+			task.run();
+			
+			lock.lock();
+			try {
+				game.runner = null;
+				
+				if(task.priority == Priority.LONG)
+					--(longWorkers);
+				
+				// Clears an interrupt from GameQueue.close(), which can no longer
+				// reach this worker as it has left the game
+				Thread.interrupted();
+				
+				if(!game.pending.isEmpty())
+					enqueue(game);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+}
@@ -1,11 +1,28 @@
 package org.silcos.tictactoe;
 
+import java.util.Arrays;
+import java.util.Random;
+
 /**
  * <p>
  * Holds the grid of squares in which each player can make moves. Once a
- * state is written on a square, it cannot be replaced. Both players can
- * query previously made moves on the board by checking the state of a
- * square by its coordinates.
+ * state is written on a square, it cannot be replaced, but the last move
+ * can be taken back using <tt>unmakeMove()</tt>. Both players can query
+ * previously made moves on the board by checking the state of a square by
+ * its coordinates.
+ * 
+ * <p>
+ * The moves made on the board are kept on a stack, along with the <tt>
+ * hotspot</tt> and <tt>nextState</tt> they replaced. Hence, a search can
+ * walk the game tree on a single board by pairing each <tt>makeMove</tt>
+ * with an <tt>unmakeMove</tt>, each costing O(1) without allocating.
+ * 
+ * <p>
+ * A board is not thread-safe: other threads must not read a live board
+ * while the game is going on. Instead, the thread applying its moves takes
+ * an immutable <tt>BoardSnapshot</tt> using <tt>snapshot()</tt> and hands
+ * it to them; in a game, <tt>GameController.snapshot()</tt> publishes the
+ * snapshot of the last move to any thread.
  * 
  * <p>
  * Only two types of moves can be played on the board, hence, only two
@@ -14,12 +31,20 @@ package org.silcos.tictactoe;
  *
  * <p>
  * A <code>Board</code> can be customized by setting its area, although it
- * will be a square.
+ * will be a square, and the no. of squares in a row needed to win (its
+ * <tt>winLength</tt>), which is its side by default. The runs of <tt>
+ * winLength</tt> squares along all rows, columns & diagonals are listed by
+ * its <tt>WinningLines</tt>, and the board counts the squares each side
+ * holds in each of them.
+ * 
+ * <p>
+ * It is the dense backend of <tt>GameBoard</tt>, whose memory grows with
+ * its area; see <tt>SparseBoard</tt> for very large grids.
  * 
  * @author Shukant Pal
  *
  */
-public class Board {
+public class Board implements GameBoard {
 	
 	private class LineState {
 		
@@ -70,6 +95,19 @@ public class Board {
 				return;
 			}
 		}
+		
+		void unfillAs(MoveType oldState) {
+			switch(oldState) {
+			case O:
+				--(oFilled);
+				break;
+			case X:
+				--(xFilled);
+				break;
+			default:
+				return;
+			}
+		}
 	}
 	
 	/**
@@ -425,7 +463,7 @@ public class Board {
 	 * @author Shukant Pal
 	 *
 	 */
-	public class LineIterator {
+	public class LineIterator implements GameBoard.LineIterator {
 		
 		private LineState[] stateData;
 		private int lineIndex;
@@ -561,6 +599,7 @@ public class Board {
 	}
 	
 	private int side;
+	private int winLength;
 	private int dirtyCount;
 	private int[] hotspot;
 	private Cell grid[][];
@@ -570,13 +609,88 @@ public class Board {
 	private LineState columnStates[];
 	private LineState diagonalStates[];
 	
-	private LineIterator rowItr;
-	private LineIterator colItr;
-	private LineIterator diaItr;
+	/**
+	 * The windows of this board, and the no. of squares held by each side
+	 * in each window.
+	 */
+	private WinningLines winningLines;
+	private int[] oWindowCounts;
+	private int[] xWindowCounts;
 	
+	/**
+	 * The sum of the offsets of the filled squares in each window. When a
+	 * window has one empty square, its offset is <tt>winLength * (winLength
+	 * - 1) / 2</tt> minus this sum.
+	 */
+	private int[] windowFillSums;
+	
+	/**
+	 * The <i>threats</i> of each side, i.e. the windows in which it holds all
+	 * squares but one, which is empty. Each is an unordered set held as a
+	 * dense array of windows along with the position of each window in it
+	 * (-1, if absent), so that windows are added & removed in O(1).
+	 */
+	private int[] oThreats;
+	private int[] xThreats;
+	private int oThreatCount;
+	private int xThreatCount;
+	private int[] oThreatSlots;
+	private int[] xThreatSlots;
+	
+	private long positionHash;
+	private MoveType winner;
+	private int winningWindow;
 	private int winCacheIndex;
 	private GameController.LineIdentifier winCacheIdentifier;
 	
+	/**
+	 * The no. of moves made when the winner was found, so that the winner is
+	 * cleared when that move is taken back.
+	 */
+	private int winPly;
+	
+	/**
+	 * The stack of moves made on this board, holding the index of each
+	 * square (<tt>row * side + column</tt>) along with the <tt>hotspot</tt>
+	 * (in the same form) & <tt>nextState</tt> before the move. Its depth is
+	 * <tt>dirtyCount</tt>.
+	 */
+	private int[] moveCells;
+	private int[] previousHotspots;
+	private MoveType[] previousNextStates;
+	
+	/**
+	 * The indices of the empty squares, packed in the first <tt>getEmptyArea()
+	 * </tt> entries in no particular order, along with the position of each
+	 * square in it. A filled square is swapped with the last empty one, and
+	 * a square emptied by <tt>unmakeMove</tt> is appended.
+	 */
+	private int[] emptyCells;
+	private int[] emptySlots;
+	
+	/**
+	 * The listeners notified of each change to a square, held in an array
+	 * so that notifying them does not allocate.
+	 */
+	private SquareListener[] squareListeners = new SquareListener[0];
+	
+	/**
+	 * The squares held by each side, as bitmasks kept up to date in place by
+	 * each move. They are copied into a <tt>BoardSnapshot</tt> only when one
+	 * is taken.
+	 */
+	private long[] oMask;
+	private long[] xMask;
+	
+	/**
+	 * The no. of moves made & taken back on this board, and its value when
+	 * <tt>snapshot</tt> was taken, so that the snapshot is reused until the
+	 * next move.
+	 */
+	private long moveVersion;
+	private long snapshotVersion;
+	private BoardSnapshot snapshot;
+	
 	private void initAll(LineState lineStatesArray[]) {
 		for (int idx = 0; idx < lineStatesArray.length; idx++) {
 			lineStatesArray[idx] = new LineState();
@@ -601,7 +715,36 @@ public class Board {
 	}
 	
 	public Board(int side) {
+		this(side, side);
+	}
+	
+	/**
+	 * Instantiates an empty <tt>Board</tt> on which a player wins by filling
+	 * <tt>winLength</tt> squares in a row, along a row, a column or any
+	 * diagonal.
+	 * 
+	 * @param side - the no. of squares in each row & column
+	 * @param winLength - the no. of squares in a row needed to win, in [1,
+	 * 				side]
+	 */
+	public Board(int side, int winLength) {
 		this.side = side;
+		this.winLength = winLength;
+		this.winningLines = WinningLines.of(side, winLength);
+		this.oWindowCounts = new int[winningLines.windowCount()];
+		this.xWindowCounts = new int[winningLines.windowCount()];
+		this.windowFillSums = new int[winningLines.windowCount()];
+		this.oThreats = new int[winningLines.windowCount()];
+		this.xThreats = new int[winningLines.windowCount()];
+		this.oThreatSlots = new int[winningLines.windowCount()];
+		this.xThreatSlots = new int[winningLines.windowCount()];
+		
+		Arrays.fill(oThreatSlots, -1);
+		Arrays.fill(xThreatSlots, -1);
+		
+		for(int window = 0; window < winningLines.windowCount(); window++)
+			updateThreats(window);
+		
 		this.dirtyCount = 0;
 		this.hotspot = new int[2];
 		this.grid = new Cell[side][side];
@@ -611,15 +754,27 @@ public class Board {
 		columnStates = new LineState[getSide()];
 		diagonalStates = new LineState[2];
 		
-		rowItr = rowIterator();
-		colItr = columnIterator();
-		diaItr = diagonalIterator();
-	
 		initAll(rowStates);
 		initAll(columnStates);
 		initAll(diagonalStates);
 		
 		hotspot[0] = hotspot[1] = 0;
+		positionHash = 0L;
+		winner = MoveType.EMPTY;
+		winningWindow = -1;
+		
+		moveCells = new int[getArea()];
+		previousHotspots = new int[getArea()];
+		previousNextStates = new MoveType[getArea()];
+		oMask = new long[(getArea() + 63) / 64];
+		xMask = new long[(getArea() + 63) / 64];
+		snapshot = null;
+		
+		emptyCells = new int[getArea()];
+		emptySlots = new int[getArea()];
+		
+		for(int cell = 0; cell < getArea(); cell++)
+			emptyCells[cell] = emptySlots[cell] = cell;
 		
 		for(int i=0; i<side; i++) {
 			for(int j=0; j<side; j++) {
@@ -632,6 +787,17 @@ public class Board {
 		return (side);
 	}
 	
+	/**
+	 * Returns the no. of squares in a row a player must fill to win.
+	 */
+	public int getWinLength() {
+		return (winLength);
+	}
+	
+	public WinningLines getWinningLines() {
+		return (winningLines);
+	}
+		
 	public int getArea() {
 		return (getSide() * getSide());
 	}
@@ -648,10 +814,50 @@ public class Board {
 		return (grid[row][column].getState());
 	}
 	
+	/**
+	 * Returns the index (<tt>row * side + column</tt>) of the empty square
+	 * at the given position in the list of empty squares. The order of the
+	 * list changes as moves are made.
+	 * 
+	 * @param index - the position in the list, in [0, getEmptyArea())
+	 */
+	public int getEmptyCell(int index) {
+		if(index < 0 || index >= getEmptyArea())
+			throw new IllegalArgumentException("The index must be in [0, " + getEmptyArea() + ")");
+		
+		return (emptyCells[index]);
+	}
+	
+	/**
+	 * Returns the index (<tt>row * side + column</tt>) of an empty square
+	 * chosen uniformly at random, in O(1) without allocating; -1, if the
+	 * board is full.
+	 * 
+	 * @param random - the generator to draw from
+	 */
+	public int randomEmptyCell(Random random) {
+		if(getEmptyArea() == 0)
+			return (-1);
+		
+		return (emptyCells[random.nextInt(getEmptyArea())]);
+	}
+	
 	public MoveType getNextState() {
 		return (nextState);
 	}
 	
+	/**
+	 * Returns the 64-bit Zobrist hash of the position on this board. It is
+	 * updated by <tt>setState</tt> with a single XOR as each move lands, and
+	 * can be used as a key for caches & transposition tables. Two boards
+	 * holding the same position always have the same hash.
+	 * 
+	 * @see Zobrist
+	 */
+	public long getPositionHash() {
+		return (positionHash);
+	}
+	
 	public int getWinCacheIndex() {
 		return (winCacheIndex);
 	}
@@ -660,12 +866,23 @@ public class Board {
 		return (winCacheIdentifier);
 	}
 	
+	/**
+	 * Returns the index of the window captured by the winner in <tt>
+	 * getWinningLines()</tt>; -1, if no one has won yet.
+	 */
+	public int getWinningWindow() {
+		return (winningWindow);
+	}
+	
 	public boolean setState(MoveType newState,
 			int row, int column) {
 		if(!checkBounds(row, column))
 			throw new IllegalArgumentException(
 					"(Row, Column) out of bounds for" + side + "x" + side + "board.");
 		
+		int previousHotspot = hotspot[0] * side + hotspot[1];
+		MoveType previousNextState = nextState;
+		
 		hotspot[0] = row;
 		hotspot[1] = column;
 		
@@ -673,6 +890,9 @@ public class Board {
 			if(grid[row][column].getState() != MoveType.EMPTY)
 				return (false);
 			
+			moveCells[dirtyCount] = row * side + column;
+			previousHotspots[dirtyCount] = previousHotspot;
+			previousNextStates[dirtyCount] = previousNextState;
 			++(dirtyCount);
 			
 			if(newState == MoveType.O)
@@ -684,6 +904,8 @@ public class Board {
 		boolean wasFilled = grid[row][column].setState(newState);
 		
 		if (wasFilled) {
+			positionHash ^= Zobrist.keyOf(newState, row * side + column);
+			
 			rowStates[row].fillAs(newState);
 			columnStates[column].fillAs(newState);
 			
@@ -692,6 +914,19 @@ public class Board {
 			
 			if(row + column == getSide() - 1)
 				diagonalStates[1].fillAs(newState);
+			
+			if(newState != MoveType.EMPTY)
+				removeEmptyCell(row * side + column);
+			
+			int completedWindow = countWindows(row * side + column, newState, 1);
+			
+			if(winner == MoveType.EMPTY && completedWindow >= 0)
+				captureWinner(completedWindow, newState);
+			
+			if(newState != MoveType.EMPTY) {
+				flipMask(row * side + column, newState);
+				notifySquareChanged(row, column, newState);
+			}
 		} else {
 			System.out.println("Warning *:* The (" + row + "," + column + ") square could" +
 								"not be set, because it was already set.");
@@ -700,6 +935,136 @@ public class Board {
 		return (wasFilled);
 	}
 	
+	/**
+	 * Makes the next move, i.e. fills the square at <tt>(row, column)</tt>
+	 * with <tt>getNextState()</tt>.
+	 * 
+	 * @return - whether the move was made; <tt>false</tt>, if the square was
+	 * 			already filled.
+	 * @see #unmakeMove()
+	 */
+	public boolean makeMove(int row, int column) {
+		return (setState(nextState, row, column));
+	}
+	
+	/**
+	 * Takes back the last move made on this board, restoring its square,
+	 * the line counters, the position hash, the win cache, <tt>dirtyCount
+	 * </tt>, <tt>hotspot</tt> and <tt>nextState</tt> as they were before it.
+	 * It costs O(1).
+	 * 
+	 * @return - whether a move was taken back; <tt>false</tt>, if the board
+	 * 			is empty.
+	 */
+	public boolean unmakeMove() {
+		if(dirtyCount == 0)
+			return (false);
+		
+		if(winner != MoveType.EMPTY && winPly == dirtyCount) {
+			winner = MoveType.EMPTY;
+			winningWindow = -1;
+			winCacheIndex = 0;
+			winCacheIdentifier = null;
+		}
+		
+		--(dirtyCount);
+		
+		int cell = moveCells[dirtyCount];
+		int row = cell / side;
+		int column = cell % side;
+		MoveType oldState = grid[row][column].getState();
+		
+		grid[row][column].clear();
+		positionHash ^= Zobrist.keyOf(oldState, cell);
+		
+		rowStates[row].unfillAs(oldState);
+		columnStates[column].unfillAs(oldState);
+		
+		if(row == column)
+			diagonalStates[0].unfillAs(oldState);
+		
+		if(row + column == getSide() - 1)
+			diagonalStates[1].unfillAs(oldState);
+		
+		countWindows(cell, oldState, -1);
+		
+		emptySlots[cell] = getEmptyArea() - 1;
+		emptyCells[getEmptyArea() - 1] = cell;
+		
+		hotspot[0] = previousHotspots[dirtyCount] / side;
+		hotspot[1] = previousHotspots[dirtyCount] % side;
+		nextState = previousNextStates[dirtyCount];
+		flipMask(cell, oldState);
+		notifySquareChanged(row, column, MoveType.EMPTY);
+		
+		return (true);
+	}
+	
+	/**
+	 * Registers a listener to be notified whenever a square is filled or
+	 * emptied on this board.
+	 */
+	public void addSquareListener(SquareListener listener) {
+		squareListeners = Arrays.copyOf(squareListeners, squareListeners.length + 1);
+		squareListeners[squareListeners.length - 1] = listener;
+	}
+	
+	/**
+	 * Unregisters a listener added by <tt>addSquareListener</tt>.
+	 * 
+	 * @return - whether the listener was registered
+	 */
+	public boolean removeSquareListener(SquareListener listener) {
+		for(int idx = 0; idx < squareListeners.length; idx++) {
+			if(squareListeners[idx] == listener) {
+				SquareListener[] listeners = new SquareListener[squareListeners.length - 1];
+				
+				System.arraycopy(squareListeners, 0, listeners, 0, idx);
+				System.arraycopy(squareListeners, idx + 1, listeners, idx, listeners.length - idx);
+				squareListeners = listeners;
+				
+				return (true);
+			}
+		}
+		
+		return (false);
+	}
+	
+	private void notifySquareChanged(int row, int column, MoveType state) {
+		for(SquareListener listener : squareListeners)
+			listener.squareChanged(this, row, column, state);
+	}
+	
+	/**
+	 * Flips the bit of the given square in the mask of <tt>owner</tt>, when
+	 * it is filled or emptied.
+	 */
+	private void flipMask(int cell, MoveType owner) {
+		long[] mask = (owner == MoveType.O) ? oMask : xMask;
+		
+		mask[cell >>> 6] ^= 1L << cell;
+		++(moveVersion);
+	}
+	
+	/**
+	 * Returns an immutable snapshot of the current position, which can be
+	 * read by other threads while the game goes on. It must be taken by the
+	 * thread making the moves on this board (in a game, the one applying them
+	 * for the <tt>GameController</tt>), as it caches the last snapshot
+	 * without locking. The snapshot copies the masks of both
+	 * sides (two words each on an 11x11 board), and is reused until the next
+	 * move, so moves themselves never allocate.
+	 */
+	public BoardSnapshot snapshot() {
+		if(snapshot == null || snapshotVersion != moveVersion) {
+			snapshot = new BoardSnapshot(side, winLength, oMask.clone(), xMask.clone(),
+					nextState, winner, dirtyCount, positionHash);
+			snapshotVersion = moveVersion;
+		}
+		
+		return (snapshot);
+	}
+	
 	/**
 	 * Instantiates a new <tt>Board.LineIterator</tt> on the columns
 	 * of <tt>this</tt> board, that starts from the <tt>0th</tt>
@@ -748,62 +1113,219 @@ public class Board {
 		return (new LineIterator(rowStates, rowIndex));
 	}
 	
+	/**
+	 * Adds <tt>delta</tt> to the counters of <tt>state</tt> in the windows
+	 * through the given square, when a move is made on it (or taken back).
+	 * Only a move can complete a window, hence the (at most <tt>4 *
+	 * winLength</tt>) windows through it are the only candidates.
+	 * 
+	 * @return - the first window completed by <tt>state</tt>; -1, if none.
+	 */
+	private int countWindows(int cell, MoveType state, int delta) {
+		int[] counts;
+		
+		if(state == MoveType.O)
+			counts = oWindowCounts;
+		else if(state == MoveType.X)
+			counts = xWindowCounts;
+		else
+			return (-1);
+		
+		int completedWindow = -1;
+		int[] windows = winningLines.windowsThrough(cell);
+		int[] offsets = winningLines.offsetsThrough(cell);
+		
+		for(int idx = 0; idx < windows.length; idx++) {
+			int window = windows[idx];
+			
+			counts[window] += delta;
+			windowFillSums[window] += delta * offsets[idx];
+			updateThreats(window);
+			
+			if(counts[window] == winLength && completedWindow < 0)
+				completedWindow = window;
+		}
+		
+		return (completedWindow);
+	}
+	
+	/**
+	 * Removes the given square from the list of empty squares, by moving the
+	 * last empty square into its place. <tt>dirtyCount</tt> must already
+	 * count the move filling it.
+	 */
+	private void removeEmptyCell(int cell) {
+		int slot = emptySlots[cell];
+		int last = emptyCells[getEmptyArea()];
+		
+		emptyCells[slot] = last;
+		emptySlots[last] = slot;
+		emptyCells[getEmptyArea()] = cell;
+		emptySlots[cell] = getEmptyArea();
+	}
+	
+	/**
+	 * Adds the given window to, or removes it from, the threats of both
+	 * sides after its counters have changed.
+	 */
+	private void updateThreats(int window) {
+		int oCount = oWindowCounts[window];
+		int xCount = xWindowCounts[window];
+		
+		if(oCount == winLength - 1 && xCount == 0) {
+			if(oThreatSlots[window] < 0) {
+				oThreatSlots[window] = oThreatCount;
+				oThreats[oThreatCount++] = window;
+			}
+		} else if(oThreatSlots[window] >= 0) {
+			oThreatCount = removeThreat(window, oThreats, oThreatSlots, oThreatCount);
+		}
+		
+		if(xCount == winLength - 1 && oCount == 0) {
+			if(xThreatSlots[window] < 0) {
+				xThreatSlots[window] = xThreatCount;
+				xThreats[xThreatCount++] = window;
+			}
+		} else if(xThreatSlots[window] >= 0) {
+			xThreatCount = removeThreat(window, xThreats, xThreatSlots, xThreatCount);
+		}
+	}
+	
+	/**
+	 * Removes a window from a threat set by moving the last window of the set
+	 * into its place, and returns the new size of the set.
+	 */
+	private static int removeThreat(int window, int[] threats, int[] slots, int count) {
+		int slot = slots[window];
+		int last = threats[--count];
+		
+		threats[slot] = last;
+		slots[last] = slot;
+		slots[window] = -1;
+		
+		return (count);
+	}
+	
+	/**
+	 * Returns the no. of windows in which <tt>observer</tt> holds all squares
+	 * but one, which is empty.
+	 */
+	public int getThreatCount(MoveType observer) {
+		return ((observer == MoveType.O) ? oThreatCount : xThreatCount);
+	}
+	
+	/**
+	 * Returns an empty square on which <tt>observer</tt> would win at once,
+	 * i.e. the empty square of one of its threats, in O(1). The threats of
+	 * both sides are kept up-to-date by <tt>setState</tt> & <tt>unmakeMove
+	 * </tt>; hence, the opponent's winning square is also the square to be
+	 * blocked.
+	 * 
+	 * @param observer - the side which is to win
+	 * @return - the index of the square (<tt>row * side + column</tt>); -1, if
+	 * 			<tt>observer</tt> cannot win with one move.
+	 */
+	public int findWinningCell(MoveType observer) {
+		int count = (observer == MoveType.O) ? oThreatCount : xThreatCount;
+		
+		if(count == 0 || observer == MoveType.EMPTY)
+			return (-1);
+		
+		int window = (observer == MoveType.O) ? oThreats[0] : xThreats[0];
+		int emptyOffset = winLength * (winLength - 1) / 2 - windowFillSums[window];
+		
+		return (winningLines.cellOf(window, emptyOffset));
+	}
+	
+	/**
+	 * Records the given window, which has just been completed by <tt>state
+	 * </tt>, in the win cache. The win cache index is the index of the row
+	 * or column holding the window, or that of the diagonal direction (0 for
+	 * ULBR & 1 for URBL).
+	 */
+	private void captureWinner(int window, MoveType state) {
+		winPly = dirtyCount;
+		winner = state;
+		winningWindow = window;
+		winCacheIdentifier = winningLines.getDirection(window);
+		
+		switch(winCacheIdentifier) {
+		case ROW:
+			winCacheIndex = winningLines.getStartRow(window);
+			break;
+		case COLUMN:
+			winCacheIndex = winningLines.getStartColumn(window);
+			break;
+		case DIAGONAL_ULBR:
+			winCacheIndex = 0;
+			break;
+		default:
+			winCacheIndex = 1;
+			break;
+		}
+	}
+	
 	/**
 	 * <p>
-	 * Checks all capturable lines on this <code>Board</code> object, and if
-	 * any is fully filled with only one type of <code>SquareState</code>, it
-	 * declares the game winner! Once the game is won, further moves are
-	 * supported, but the UI shall end the game.
+	 * Returns the winner of the game, if any window of <code>winLength
+	 * </code> squares on this <code>Board</code> object is fully filled with
+	 * only one type of <code>MoveType</code>. Once the game is won, further
+	 * moves are supported, but the UI shall end the game.
 	 * 
 	 * <p>
-	 * This method uses <code>LineState</code> objects to keep track of the no.
-	 * of X's and O's set on a line. These heuristics are updated while using
-	 * the <code>setState</code> method.
+	 * The winner is detected while using the <code>setState</code> method,
+	 * by updating only the counters of the windows passing through the move
+	 * in O(<code>winLength</code>). Hence, this method does not scan the
+	 * board and costs O(1). The captured window is held by <code>
+	 * getWinningWindow</code>, <code>getWinCacheIndex</code> and <code>
+	 * getWinCacheIdentifier</code>.
 	 * 
-	 * @return The <code>SquareState</code> of the <code>Player</code> which
-	 * 			has won the game; <code>SquareState.EMPTY</code>, if the game
+	 * @return The <code>MoveType</code> of the <code>Player</code> which
+	 * 			has won the game; <code>MoveType.EMPTY</code>, if the game
 	 * 			is to be continued, and no one has won!
 	 */
 	public MoveType findWinner() {
-		rowItr.setLineIndex(0);
-		
-		do {
-			if(rowItr.getFilled() == getSide()
-					&& rowStates[rowItr.getLineIndex()].isPure()) {
-				winCacheIndex = rowItr.getLineIndex();
-				winCacheIdentifier = GameController.LineIdentifier.ROW;
-				return (rowItr.getOFilled() == 0 ? MoveType.X : MoveType.O);
-			}
-		} while(rowItr.next());
+		return (winner);
+	}
+	
+	/**
+	 * Returns whether the given object is a <tt>Board</tt> of the same side
+	 * & win length holding the same position, i.e. the same state in each square. The
+	 * position hashes are compared first, so that the squares are compared
+	 * only when the positions are most likely equal.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if(this == other)
+			return (true);
+		if(!(other instanceof Board))
+			return (false);
 		
-		colItr.setLineIndex(0);
+		Board board = (Board) other;
 		
-		do {
-			if(colItr.getFilled() == getSide()
-					&& columnStates[colItr.getLineIndex()].isPure()) {
-				winCacheIndex = colItr.getLineIndex();
-				winCacheIdentifier = GameController.LineIdentifier.COLUMN;
-				return (colItr.getOFilled() == 0 ? MoveType.X : MoveType.O);
-			}
-		} while(colItr.next());
-		
-		diaItr.setLineIndex(0);
+		if(board.side != side || board.winLength != winLength
+				|| board.positionHash != positionHash
+				|| board.dirtyCount != dirtyCount)
+			return (false);
 		
-		do {
-			if(diaItr.getFilled() == getSide()
-					&& diagonalStates[diaItr.getLineIndex()].isPure()) {
-				winCacheIndex = diaItr.getLineIndex();
-				
-				if(winCacheIndex == 0) {
-					winCacheIdentifier = GameController.LineIdentifier.DIAGONAL_ULBR;
-				} else {
-					winCacheIdentifier = GameController.LineIdentifier.DIAGONAL_URBL;
-				}
-				return (diaItr.getOFilled() == 0 ? MoveType.X : MoveType.O);
+		for(int i=0; i<side; i++) {
+			for(int j=0; j<side; j++) {
+				if(grid[i][j].getState() != board.grid[i][j].getState())
+					return (false);
 			}
-		} while(diaItr.next());
+		}
 		
-		return (MoveType.EMPTY);
+		return (true);
+	}
+	
+	/**
+	 * Returns a hash-code derived from the position hash, consistent with
+	 * <tt>equals</tt>. As the board is mutable, its hash-code changes on
+	 * each move.
+	 */
+	@Override
+	public int hashCode() {
+		return ((int) (positionHash ^ (positionHash >>> 32)));
 	}
 	
 }
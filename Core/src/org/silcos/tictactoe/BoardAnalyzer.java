@@ -1,167 +1,400 @@
 package org.silcos.tictactoe;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 
-import org.silcos.tictactoe.Board.LineIterator;
+import org.silcos.tictactoe.GameBoard.LineIterator;
 
 /**
- * Exposes utility methods for 
+ * <p>
+ * Relates the empty squares of a <tt>GameBoard</tt> to the lines (rows,
+ * columns & the two main diagonals) through them. A line is <i>clean</i> for an
+ * observer if the opponent has not filled any square in it, i.e. the
+ * observer can still capture it. For each empty square, the analyzer counts
+ * the clean lines through it, for both players.
+ * 
+ * <p>
+ * The squares of each player are bucketed by their no. of clean lines, from
+ * 0 to <tt>MAX_CLEAN_LINES</tt>. Each bucket is a doubly-linked list threaded
+ * through arrays indexed by square (<tt>row * side + column</tt>), so that a
+ * square is moved between buckets in O(1). All results are held in primitive
+ * arrays owned by the analyzer, which are filled again by each call to
+ * <tt>analyze()</tt>; hence, an analyzer can be reused inside a search loop
+ * without allocating.
+ * 
+ * <p>
+ * An analyzer can also be <tt>attach()</tt>ed to its board, after which it
+ * keeps its tables up-to-date as squares are filled & emptied. A move only
+ * changes the row, the column & the diagonals through its square, so only
+ * the squares on those lines are moved between buckets, costing O(side)
+ * instead of the O(side^2) of <tt>analyze()</tt>.
  * 
  * @author Shukant Pal
  */
-public class BoardAnalyzer {
-
+public class BoardAnalyzer implements GameBoard.SquareListener {
+	
+	/**
+	 * The most lines which can pass through a square: its row, its column &
+	 * both diagonals.
+	 */
+	public static final int MAX_CLEAN_LINES = 4;
+	
+	/**
+	 * Marks the end of a bucket, or a square which is not in any bucket.
+	 */
+	public static final int NONE = -1;
+	
+	GameBoard sampleSpace;
+	
+	LineIterator rowItr;
+	LineIterator colItr;
+	LineIterator diaItr;
+	
+	/**
+	 * Whether each row, column & diagonal is clean, for <b>O</b> at index 0
+	 * & for <b>X</b> at index 1.
+	 */
+	private boolean[][] rowClean;
+	private boolean[][] columnClean;
+	private boolean[][] diagonalClean;
+	
 	/**
-	 * Holds data on empty squares on the board, relating to their
-	 * relation with clean rows, column, diagonals, chances of winning,
-	 * & forced moves.
+	 * The no. of clean lines through each square for each player; -1, for
+	 * filled squares.
+	 */
+	private int[][] cleanCounts;
+	
+	/**
+	 * The first square in each bucket, and the links between squares in the
+	 * same bucket, for each player.
+	 */
+	private int[][] bucketHeads;
+	private int[][] bucketSizes;
+	private int[][] nextInBucket;
+	private int[][] previousInBucket;
+	
+	private boolean attached;
+	
+	/**
+	 * Instantiates a <tt>BoardAnalyzer</tt> for the given board, allocating
+	 * all of its tables. The board is not analyzed until <tt>analyze()</tt>
+	 * is called.
 	 * 
-	 * @author Shukant Pal
+	 * @param sampleSpace - The <tt>GameBoard</tt> of which the analyzer will hold
+	 * 					the relations of empty squares & lines.
+	 */
+	public BoardAnalyzer(GameBoard sampleSpace) {
+		int area = sampleSpace.getArea();
+		
+		this.sampleSpace = sampleSpace;
+		this.rowItr = sampleSpace.rowIterator();
+		this.colItr = sampleSpace.columnIterator();
+		this.diaItr = sampleSpace.diagonalIterator();
+		
+		this.rowClean = new boolean[2][sampleSpace.getSide()];
+		this.columnClean = new boolean[2][sampleSpace.getSide()];
+		this.diagonalClean = new boolean[2][2];
+		this.cleanCounts = new int[2][area];
+		this.bucketHeads = new int[2][MAX_CLEAN_LINES + 1];
+		this.bucketSizes = new int[2][MAX_CLEAN_LINES + 1];
+		this.nextInBucket = new int[2][area];
+		this.previousInBucket = new int[2][area];
+	}
+	
+	public int getLinearSize() {
+		return (sampleSpace.getSide());
+	}
+	
+	public GameBoard getBoard() {
+		return (sampleSpace);
+	}
+	
+	private static int indexOf(MoveType observer) {
+		if(observer == MoveType.EMPTY)
+			throw new IllegalArgumentException("The observer cannot be of type EMPTY");
+		
+		return ((observer == MoveType.O) ? 0 : 1);
+	}
+	
+	/**
+	 * Rebuilds the tables of both players from the current position on the
+	 * board, in a single pass over its lines & squares. It does not
+	 * allocate.
 	 */
-	public class CellRelations {
+	public void analyze() {
+		int side = getLinearSize();
 		
-		private int row, column;
-		private boolean rowClean, columnClean;
-		private int diagonalsClean, diagonalsCount;
+		for(int line = 0; line < side; line++) {
+			rowItr.setLineIndex(line);
+			colItr.setLineIndex(line);
+			
+			rowClean[0][line] = !rowItr.isLineDirty(MoveType.O);
+			rowClean[1][line] = !rowItr.isLineDirty(MoveType.X);
+			columnClean[0][line] = !colItr.isLineDirty(MoveType.O);
+			columnClean[1][line] = !colItr.isLineDirty(MoveType.X);
+		}
 		
-		/**
-		 * Establishes the relation for the <tt>Cell</tt> with diagonal
-		 * lines.
-		 */
-		private void putDiagonalRelations() {
-			diagonalsCount = 0;
-			diagonalsClean = 0;
+		for(int diagonal = 0; diagonal < 2; diagonal++) {
+			diaItr.setLineIndex(diagonal);
 			
-			if(row == column) {
-				diaItr.setLineIndex(0);
-				++(diagonalsCount);
-				
-				if(!diaItr.isLineDirty(observer))
-					++(diagonalsClean);
-			}
+			diagonalClean[0][diagonal] = !diaItr.isLineDirty(MoveType.O);
+			diagonalClean[1][diagonal] = !diaItr.isLineDirty(MoveType.X);
+		}
+		
+		for(int player = 0; player < 2; player++) {
+			Arrays.fill(bucketHeads[player], NONE);
+			Arrays.fill(bucketSizes[player], 0);
+		}
+		
+		for(int cell = side * side - 1; cell >= 0; cell--) {
+			int row = cell / side;
+			int column = cell % side;
 			
-			if(row + column == getLinearSize() - 1) {
-				diaItr.setLineIndex(1);
-				++(diagonalsCount);
+			if(sampleSpace.getState(row, column) != MoveType.EMPTY) {
+				for(int player = 0; player < 2; player++) {
+					cleanCounts[player][cell] = -1;
+					nextInBucket[player][cell] = previousInBucket[player][cell] = NONE;
+				}
 				
-				if(!diaItr.isLineDirty(observer))
-					++(diagonalsClean);
+				continue;
 			}
-		}
-		
-		CellRelations() {
-			row = rowItr.getLineIndex();
-			column = colItr.getLineIndex();
 			
-			rowClean = !rowItr.isLineDirty(observer);
-			columnClean = !colItr.isLineDirty(observer);
-			putDiagonalRelations();
+			for(int player = 0; player < 2; player++) {
+				cleanCounts[player][cell] = countClean(player, row, column);
+				link(player, cell);
+			}
 		}
+	}
+	
+	/**
+	 * Analyzes the board and subscribes to it, so that the tables follow each
+	 * move made or taken back afterwards. Does nothing if already attached.
+	 */
+	public void attach() {
+		if(attached)
+			return;
 		
-		/**
-		 * Returns whether the row on which this cell lies on, is clean
-		 * for the observer or not.
-		 */
-		public boolean isRowClean() {
-			return (rowClean);
+		analyze();
+		sampleSpace.addSquareListener(this);
+		attached = true;
+	}
+	
+	/**
+	 * Unsubscribes from the board; the tables are left as they were after the
+	 * last move.
+	 */
+	public void detach() {
+		if(attached) {
+			sampleSpace.removeSquareListener(this);
+			attached = false;
 		}
+	}
+	
+	public boolean isAttached() {
+		return (attached);
+	}
+	
+	/**
+	 * Updates the tables after a square on the board was filled or emptied,
+	 * touching only the lines through it.
+	 */
+	@Override
+	public void squareChanged(GameBoard board, int row, int column, MoveType state) {
+		int side = getLinearSize();
+		int cell = row * side + column;
 		
-		/**
-		 * Returns whether the column on which this cell lies on, is celan
-		 * for the observer or not.
-		 */
-		public boolean isColumnClean() {
-			return (columnClean);
+		if(state != MoveType.EMPTY) {
+			for(int player = 0; player < 2; player++) {
+				unlink(player, cell);
+				cleanCounts[player][cell] = -1;
+			}
 		}
 		
-		/**
-		 * Returns the no. of diagonals on which this cell lies on & that
-		 * are clean for the observer.
-		 */
-		public int getDiagonalsClean() {
-			return (diagonalsClean);
+		for(int player = 0; player < 2; player++) {
+			MoveType observer = (player == 0) ? MoveType.O : MoveType.X;
+			
+			rowItr.setLineIndex(row);
+			colItr.setLineIndex(column);
+			
+			boolean clean = !rowItr.isLineDirty(observer);
+			
+			if(clean != rowClean[player][row]) {
+				rowClean[player][row] = clean;
+				
+				for(int idx = 0; idx < side; idx++)
+					rebucket(player, row * side + idx, clean);
+			}
+			
+			clean = !colItr.isLineDirty(observer);
+			
+			if(clean != columnClean[player][column]) {
+				columnClean[player][column] = clean;
+				
+				for(int idx = 0; idx < side; idx++)
+					rebucket(player, idx * side + column, clean);
+			}
+			
+			for(int diagonal = 0; diagonal < 2; diagonal++) {
+				if((diagonal == 0) ? row != column : row + column != side - 1)
+					continue;
+				
+				diaItr.setLineIndex(diagonal);
+				clean = !diaItr.isLineDirty(observer);
+				
+				if(clean != diagonalClean[player][diagonal]) {
+					diagonalClean[player][diagonal] = clean;
+					
+					for(int idx = 0; idx < side; idx++)
+						rebucket(player, idx * side + ((diagonal == 0) ? idx : side - 1 - idx), clean);
+				}
+			}
 		}
 		
-		/**
-		 * Returns the total no. of capturable lines on which the cell lies
-		 * on & that are clean for the observer.
-		 */
-		public int getTotalClean() {
-			return ((rowClean ? 1 : 0) + 
-					(columnClean ? 1 : 0) +
-					diagonalsClean);
+		if(state == MoveType.EMPTY) {
+			for(int player = 0; player < 2; player++) {
+				cleanCounts[player][cell] = countClean(player, row, column);
+				link(player, cell);
+			}
 		}
+	}
+	
+	/**
+	 * Moves an empty square up or down by one bucket, after a line through
+	 * it became clean or dirty. Filled squares are skipped.
+	 */
+	private void rebucket(int player, int cell, boolean lineCleaned) {
+		if(cleanCounts[player][cell] < 0)
+			return;
 		
+		unlink(player, cell);
+		cleanCounts[player][cell] += lineCleaned ? 1 : -1;
+		link(player, cell);
 	}
 	
-	Board sampleSpace;
-	MoveType observer;
+	/**
+	 * Returns the no. of lines clean for the given player through the square
+	 * at <tt>(row, column)</tt>, from the line tables.
+	 */
+	private int countClean(int player, int row, int column) {
+		int clean = 0;
+		
+		if(rowClean[player][row])
+			++(clean);
+		if(columnClean[player][column])
+			++(clean);
+		if(row == column && diagonalClean[player][0])
+			++(clean);
+		if(row + column == getLinearSize() - 1 && diagonalClean[player][1])
+			++(clean);
+		
+		return (clean);
+	}
 	
-	LineIterator rowItr;
-	LineIterator colItr;
-	LineIterator diaItr;
+	/**
+	 * Adds the square to the front of its bucket, given by <tt>cleanCounts
+	 * </tt>.
+	 */
+	private void link(int player, int cell) {
+		int bucket = cleanCounts[player][cell];
+		int head = bucketHeads[player][bucket];
+		
+		nextInBucket[player][cell] = head;
+		previousInBucket[player][cell] = NONE;
+		
+		if(head != NONE)
+			previousInBucket[player][head] = cell;
+		
+		bucketHeads[player][bucket] = cell;
+		++(bucketSizes[player][bucket]);
+	}
 	
-	LinkedList<CellRelations> relationTable[];
+	/**
+	 * Removes the square from its bucket, given by <tt>cleanCounts</tt>.
+	 */
+	private void unlink(int player, int cell) {
+		int next = nextInBucket[player][cell];
+		int previous = previousInBucket[player][cell];
+		
+		if(previous != NONE)
+			nextInBucket[player][previous] = next;
+		else
+			bucketHeads[player][cleanCounts[player][cell]] = next;
+		
+		if(next != NONE)
+			previousInBucket[player][next] = previous;
+		
+		nextInBucket[player][cell] = previousInBucket[player][cell] = NONE;
+		--(bucketSizes[player][cleanCounts[player][cell]]);
+	}
 	
-	private void addCell(CellRelations moveReport) {
-		relationTable[moveReport.getTotalClean()].add(moveReport);
+	/**
+	 * Returns the no. of clean lines for <tt>observer</tt> through the square
+	 * at <tt>(row, column)</tt>; -1, if the square is filled.
+	 */
+	public int getTotalClean(MoveType observer, int row, int column) {
+		return (cleanCounts[indexOf(observer)][row * getLinearSize() + column]);
 	}
 	
-	@SuppressWarnings("unchecked")
-	private BoardAnalyzer(Board sampleSpace, MoveType observer, LineIterator rowItr,
-			LineIterator colItr, LineIterator diaItr) {
-		this.sampleSpace = sampleSpace;
-		this.observer = observer;
-
-		this.rowItr = rowItr;
-		this.colItr = colItr;
-		this.diaItr = diaItr;
-		
-		this.relationTable = new LinkedList[5];	
+	public boolean isRowClean(MoveType observer, int row) {
+		return (rowClean[indexOf(observer)][row]);
 	}
-
-	public int getLinearSize() {
-		return (sampleSpace.getSide());
+	
+	public boolean isColumnClean(MoveType observer, int column) {
+		return (columnClean[indexOf(observer)][column]);
 	}
 	
 	/**
-	 * Instantiates a <tt>BoardAnalyzer</tt> holding a <tt>CellRelations</tt>
-	 * table built. The <tt>observer</tt> can then extract the best possible
-	 * move based on the current state of the board.
+	 * Returns whether the given diagonal is clean for <tt>observer</tt>.
 	 * 
-	 * @param sampleSpace - The <tt>Board</tt> on which the <tt>BoardAnalyzer</tt>
-	 * 					will hold a <tt>CellRelation</tt> table, about its empty
-	 * 					squares & their linear relations.
-	 * @param observer - The <tt>Player</tt> side which is analyzing the table
-	 * @param rowItr - A <tt>Board.LineIterator</tt> configured for row iteration.
-	 * @param colItr - A <tt>Board.LineIterator</tt> configured for column iteration.
-	 * @param diaItr - A <tt>Board.LineIterator</tt> configured for diagonal iteration.
-	 */
-	public static BoardAnalyzer newAnalyzer(Board sampleSpace, MoveType observer,
-			LineIterator rowItr, LineIterator colItr, LineIterator diaItr) {
-		
-		BoardAnalyzer analyzer = new BoardAnalyzer(sampleSpace, observer,
-				rowItr, colItr, diaItr);
-		
-		for(int i = 0; i < sampleSpace.getSide(); i++) {
-			rowItr.setLineIndex(i);
-			
-			for(int j = 0; j < sampleSpace.getSide(); j++) {
-				colItr.setLineIndex(j);
-				
-				if(sampleSpace.getState(i, j) == MoveType.EMPTY) {
-					CellRelations pmoveReport = analyzer.new CellRelations();
-					analyzer.addCell(pmoveReport);
-				}
-			}
+	 * @param diagonalIndex - 0, for the ULBR diagonal & 1, for the URBL diagonal
+	 */
+	public boolean isDiagonalClean(MoveType observer, int diagonalIndex) {
+		return (diagonalClean[indexOf(observer)][diagonalIndex]);
+	}
+	
+	/**
+	 * Returns the no. of empty squares through which <tt>totalClean</tt>
+	 * lines are clean for <tt>observer</tt>.
+	 */
+	public int getBucketSize(MoveType observer, int totalClean) {
+		return (bucketSizes[indexOf(observer)][totalClean]);
+	}
+	
+	/**
+	 * Returns the first square (<tt>row * side + column</tt>) in the bucket
+	 * of <tt>observer</tt> holding the squares with <tt>totalClean</tt> clean
+	 * lines; <tt>NONE</tt>, if the bucket is empty. The other squares are
+	 * reached using <tt>nextInBucket</tt>.
+	 */
+	public int firstInBucket(MoveType observer, int totalClean) {
+		return (bucketHeads[indexOf(observer)][totalClean]);
+	}
+	
+	/**
+	 * Returns the square after <tt>cell</tt> in its bucket of <tt>observer
+	 * </tt>; <tt>NONE</tt>, if it is the last one.
+	 */
+	public int nextInBucket(MoveType observer, int cell) {
+		return (nextInBucket[indexOf(observer)][cell]);
+	}
+	
+	/**
+	 * Returns an empty square with the most clean lines for <tt>observer
+	 * </tt>; <tt>NONE</tt>, if the board is full.
+	 */
+	public int getBestCell(MoveType observer) {
+		int player = indexOf(observer);
+		
+		for(int bucket = MAX_CLEAN_LINES; bucket >= 0; bucket--) {
+			if(bucketHeads[player][bucket] != NONE)
+				return (bucketHeads[player][bucket]);
 		}
 		
-		return (analyzer);
+		return (NONE);
 	}
 	
 	/**
 	 * <p>
-	 * Runs the <tt>Board.LineIterator</tt> until a line is found which can be
+	 * Runs the <tt>GameBoard.LineIterator</tt> until a line is found which can be
 	 * used to immediately win the game, i.e. is clean for <tt>observer</tt> &
 	 * has only one <tt>EMPTY</tt> square.
 	 * 
@@ -177,7 +410,7 @@ public class BoardAnalyzer {
 	 * @return - the iterator in a state referring to the winning line; null, if
 	 * 			no line is capturable at the moment.
 	 */
-	public static Board.LineIterator getCapturable(Board.LineIterator lineSet, MoveType observer) {
+	public static <T extends LineIterator> T getCapturable(T lineSet, MoveType observer) {
 		if(observer == MoveType.EMPTY)
 			throw new IllegalArgumentException("The observer cannot be of type EMPTY");
 		
@@ -229,5 +462,5 @@ public class BoardAnalyzer {
 					false, false, false, true));
 		}
 	}
-	
+
 }
@@ -0,0 +1,130 @@
+package org.silcos.tictactoe;
+
+/**
+ * <p>
+ * Immutable copy of the position on a <tt>Board</tt> at one point of the
+ * game, which can be handed to a background thread (e.g. a search or hint
+ * worker) while the game moves on. The squares of each side are held as a
+ * bitmask, split into 64-bit words; the square at <tt>(row, column)</tt>
+ * maps to the bit <tt>row * side + column</tt>.
+ * 
+ * <p>
+ * A <tt>Board</tt> keeps the masks up to date as moves are made, and copies
+ * them when a snapshot is taken using <tt>Board.snapshot()</tt> (two words
+ * per side on an 11x11 board); the same snapshot is returned until the next
+ * move. As all fields are final, a snapshot can be shared between threads
+ * without locking.
+ * 
+ * @author Shukant Pal
+ */
+public final class BoardSnapshot {
+	
+	private final int side;
+	private final int winLength;
+	private final long[] oMask;
+	private final long[] xMask;
+	private final MoveType nextState;
+	private final MoveType winner;
+	private final int dirtyCount;
+	private final long positionHash;
+	
+	/**
+	 * Instantiates a snapshot holding the given masks, which must not be
+	 * modified afterwards.
+	 */
+	BoardSnapshot(int side, int winLength, long[] oMask, long[] xMask, MoveType nextState,
+			MoveType winner, int dirtyCount, long positionHash) {
+		this.side = side;
+		this.winLength = winLength;
+		this.oMask = oMask;
+		this.xMask = xMask;
+		this.nextState = nextState;
+		this.winner = winner;
+		this.dirtyCount = dirtyCount;
+		this.positionHash = positionHash;
+	}
+	
+	public int getSide() {
+		return (side);
+	}
+	
+	/**
+	 * Returns the no. of squares in a row needed to win on the board.
+	 */
+	public int getWinLength() {
+		return (winLength);
+	}
+	
+	public int getArea() {
+		return (side * side);
+	}
+	
+	public int getEmptyArea() {
+		return (getArea() - dirtyCount);
+	}
+	
+	public MoveType getState(int row, int column) {
+		if(row < 0 || column < 0 || row >= side || column >= side)
+			throw new IllegalArgumentException(
+					"(Row, Column) out of bounds for " + side + "x" + side + " board.");
+		
+		int cell = row * side + column;
+		long bit = 1L << cell;
+		
+		if((oMask[cell >>> 6] & bit) != 0)
+			return (MoveType.O);
+		else if((xMask[cell >>> 6] & bit) != 0)
+			return (MoveType.X);
+		else
+			return (MoveType.EMPTY);
+	}
+	
+	public MoveType getNextState() {
+		return (nextState);
+	}
+	
+	/**
+	 * Returns the winner of the game when the snapshot was taken.
+	 * 
+	 * @see Board#findWinner()
+	 */
+	public MoveType findWinner() {
+		return (winner);
+	}
+	
+	/**
+	 * Returns the Zobrist hash of the position, equal to the <tt>
+	 * getPositionHash()</tt> of the board when the snapshot was taken.
+	 */
+	public long getPositionHash() {
+		return (positionHash);
+	}
+	
+	/**
+	 * Returns the given word of the mask of squares held by player <b>O</b>.
+	 * 
+	 * @param word - the index of the word, holding squares <tt>64 * word
+	 * 				</tt> to <tt>64 * word + 63</tt>
+	 */
+	public long getOMask(int word) {
+		return (oMask[word]);
+	}
+	
+	/**
+	 * Returns the given word of the mask of squares held by player <b>X</b>.
+	 * 
+	 * @param word - the index of the word, holding squares <tt>64 * word
+	 * 				</tt> to <tt>64 * word + 63</tt>
+	 */
+	public long getXMask(int word) {
+		return (xMask[word]);
+	}
+	
+	/**
+	 * Returns the no. of words in each mask.
+	 */
+	public int getMaskWords() {
+		return (oMask.length);
+	}
+
+}
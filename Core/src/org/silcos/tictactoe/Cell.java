@@ -24,5 +24,12 @@ public class Cell {
 			return (false);
 		}
 	}
+	
+	/**
+	 * Empties this cell, when the move made on it is taken back.
+	 */
+	void clear() {
+		this.heldBy = MoveType.EMPTY;
+	}
 
 }
@@ -0,0 +1,176 @@
+package org.silcos.tictactoe;
+
+import java.util.Random;
+
+/**
+ * <p>
+ * The queries & moves which players and the <tt>BoardAnalyzer</tt> need
+ * from a board, so that they can run on any of its backends: the dense
+ * <tt>Board</tt>, which allocates all of its squares & windows up front,
+ * or the <tt>SparseBoard</tt>, whose memory grows with the no. of moves
+ * made, for very large grids.
+ * 
+ * <p>
+ * The index of a square is <tt>row * side + column</tt>. Queries which
+ * return indices, list lines or take snapshots need a bounded board; on an
+ * unbounded <tt>SparseBoard</tt>, they throw an <tt>
+ * UnsupportedOperationException</tt>.
+ * 
+ * @author Shukant Pal
+ */
+public interface GameBoard {
+	
+	/**
+	 * Iterates over a series of lines of a board (its rows, its columns or
+	 * its two main diagonals), giving the no. of squares each side holds in
+	 * the current line.
+	 * 
+	 * @author Shukant Pal
+	 */
+	interface LineIterator {
+		
+		int getLineIndex();
+		
+		int getOFilled();
+		
+		int getXFilled();
+		
+		int getFilled();
+		
+		int getFilled(MoveType assignedSide);
+		
+		/**
+		 * Returns whether the line is dirty w.r.t given observer, i.e.
+		 * if the line is filled by squares of the opponent player.
+		 */
+		boolean isLineDirty(MoveType observer);
+		
+		void setLineIndex(int newIndex);
+		
+		boolean next();
+		
+		boolean last();
+		
+		int lineSize();
+	
+	}
+	
+	/**
+	 * Listens to the squares of a board being filled by moves and emptied by
+	 * <tt>unmakeMove</tt>. Listeners are called on the thread changing the
+	 * board, after all of its state has been updated.
+	 * 
+	 * @author Shukant Pal
+	 */
+	interface SquareListener {
+		
+		/**
+		 * Called after the square at <tt>(row, column)</tt> has been set to
+		 * <tt>state</tt>; <tt>MoveType.EMPTY</tt>, if the move on it was taken
+		 * back.
+		 */
+		void squareChanged(GameBoard board, int row, int column, MoveType state);
+	
+	}
+	
+	int getSide();
+	
+	/**
+	 * Returns the no. of squares in a row a player must fill to win.
+	 */
+	int getWinLength();
+	
+	int getArea();
+	
+	int getEmptyArea();
+	
+	int[] getHotspot();
+	
+	MoveType getState(int row, int column);
+	
+	MoveType getNextState();
+	
+	/**
+	 * Returns the 64-bit Zobrist hash of the position on this board.
+	 * 
+	 * @see Zobrist
+	 */
+	long getPositionHash();
+	
+	/**
+	 * Fills the square at <tt>(row, column)</tt> with <tt>newState</tt>.
+	 * 
+	 * @return - whether the square was filled; <tt>false</tt>, if it was
+	 * 			already filled.
+	 */
+	boolean setState(MoveType newState, int row, int column);
+	
+	/**
+	 * Fills the square at <tt>(row, column)</tt> with <tt>getNextState()
+	 * </tt>.
+	 */
+	boolean makeMove(int row, int column);
+	
+	/**
+	 * Takes back the last move made on this board.
+	 * 
+	 * @return - whether a move was taken back; <tt>false</tt>, if the board
+	 * 			is empty.
+	 */
+	boolean unmakeMove();
+	
+	/**
+	 * Returns the side which has filled <tt>winLength</tt> squares in a row;
+	 * <tt>MoveType.EMPTY</tt>, if no one has won yet.
+	 */
+	MoveType findWinner();
+	
+	/**
+	 * Returns the index of an empty square on which <tt>observer</tt> would
+	 * win at once; -1, if it cannot win with one move.
+	 */
+	int findWinningCell(MoveType observer);
+	
+	/**
+	 * Returns the index of an empty square chosen uniformly at random; -1, if
+	 * the board is full.
+	 */
+	int randomEmptyCell(Random random);
+	
+	/**
+	 * Returns an immutable snapshot of the current position, which can be
+	 * read by other threads while the game goes on. It must be taken by the
+	 * thread making the moves on this board; other threads of a game get it
+	 * from <tt>GameController.snapshot()</tt>.
+	 */
+	BoardSnapshot snapshot();
+	
+	LineIterator rowIterator();
+	
+	LineIterator rowIterator(int rowIndex);
+	
+	LineIterator columnIterator();
+	
+	LineIterator columnIterator(int columnIndex);
+	
+	/**
+	 * Returns an iterator on the two main diagonals of this board, that
+	 * starts from the diagonal <tt>DIAGONAL_ULBR</tt> and ends at diagonal
+	 * <tt>DIAGONAL_URBL</tt>.
+	 */
+	LineIterator diagonalIterator();
+	
+	/**
+	 * Registers a listener to be notified whenever a square is filled or
+	 * emptied on this board.
+	 */
+	void addSquareListener(SquareListener listener);
+	
+	/**
+	 * Unregisters a listener added by <tt>addSquareListener</tt>.
+	 * 
+	 * @return - whether the listener was registered
+	 */
+	boolean removeSquareListener(SquareListener listener);
+
+}
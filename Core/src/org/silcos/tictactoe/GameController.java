@@ -1,10 +1,10 @@
 package org.silcos.tictactoe;
 
 import java.util.EventListener;
-import java.util.LinkedList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.silcos.tictactoe.player.ComputerPlayer;
 import org.silcos.tictactoe.player.HumanPlayer;
@@ -14,12 +14,16 @@ import org.silcos.tictactoe.player.HumanPlayer;
  * mode, excluding the UI. It can be instantiated as a two-player game or
  * a human-vs-computer game.
  * 
+ * Moves can be submitted from any thread. They are put on the board one at
+ * a time by the <tt>MoveSequencer</tt> of the game, on the thread draining
+ * it, which also calls the move handlers & game listeners.
+ * 
  * @author Shukant Pal
  *
  */
 public class GameController {
 	
-	enum GameEventType {
+	public enum GameEventType {
 		GAME_WON,
 		GAME_DRAWN,
 		GAME_CANCELLED
@@ -53,13 +57,25 @@ public class GameController {
 
 	}
 	
+	/**
+	 * Notifies that a player has won, along with the window of squares it
+	 * has captured: <tt>capturedLength</tt> squares starting at <tt>
+	 * (capturedStartRow, capturedStartColumn)</tt> in the direction of <tt>
+	 * capturedLineType</tt>.
+	 * 
+	 * @author Shukant Pal
+	 */
 	public class GameWonEvent extends GameEvent {
 
 		LineIdentifier capturedLineType;
 		int capturedLineIndex;
+		int capturedStartRow;
+		int capturedStartColumn;
+		int capturedLength;
 		
-		GameWonEvent(GameEventType type, MoveType origin,
-				LineIdentifier capturedLineType, int capturedLineIndex) {
+		GameWonEvent(GameEventType type, MoveType origin, LineIdentifier capturedLineType,
+				int capturedLineIndex, int capturedStartRow, int capturedStartColumn,
+				int capturedLength) {
 			super(type, origin);
 			
 			if(capturedLineType == LineIdentifier.OTHER) {
@@ -69,6 +85,9 @@ public class GameController {
 			
 			this.capturedLineType = capturedLineType;
 			this.capturedLineIndex = capturedLineIndex;
+			this.capturedStartRow = capturedStartRow;
+			this.capturedStartColumn = capturedStartColumn;
+			this.capturedLength = capturedLength;
 		}
 		
 		public LineIdentifier getCapturedLineType() {
@@ -78,6 +97,22 @@ public class GameController {
 		public int getCapturedLineIndex() {
 			return (capturedLineIndex);
 		}
+		
+		public int getCapturedStartRow() {
+			return (capturedStartRow);
+		}
+		
+		public int getCapturedStartColumn() {
+			return (capturedStartColumn);
+		}
+		
+		/**
+		 * Returns the no. of squares captured, i.e. the win length of the
+		 * board.
+		 */
+		public int getCapturedLength() {
+			return (capturedLength);
+		}
 
 	}
 	
@@ -91,16 +126,51 @@ public class GameController {
 	
 	/**
 	 * Each <tt>Player</tt> is given a <tt>GameController.Bridge</tt> that
-	 * gives them the privilege to modify the state of the game. Once a
-	 * player uses <tt>Board.setState</tt> to places his move, he should
-	 * also notify the <tt>GameController</tt> using the <tt>notifyMove</tt>
-	 * method.
+	 * gives them the privilege to modify the state of the game. A player
+	 * places its move with <tt>submitMove</tt>; the move is put on the board
+	 * by the <tt>MoveSequencer</tt> of the game, which then calls <tt>
+	 * notifyMove</tt>. Players never modify the board themselves, so it is
+	 * only ever written by one thread at a time.
 	 * 
 	 * @author Shukant Pal
 	 */
 	public class Bridge {
 		
-		void notifyMove(Player mover, int rowIdx, int colIdx) {
+		/**
+		 * Submits a move of the given player from any thread. A move out of
+		 * turn, or after the game has ended, is rejected at once; otherwise
+		 * the move is queued and the returned future completes as described in
+		 * <tt>GameController.submitMove</tt>.
+		 */
+		CompletableFuture<MoveResult> submitMove(Player mover, int rowIdx, int colIdx) {
+			IllegalStateException rejection = checkTurn(mover);
+			
+			if(rejection != null)
+				return (CompletableFuture.failedFuture(rejection));
+			
+			CompletableFuture<MoveResult> reply = new CompletableFuture<MoveResult>();
+			sequencer.submit(new MoveSequencer.MoveRequest(mover, rowIdx, colIdx, reply));
+			
+			return (reply);
+		}
+		
+		/**
+		 * Reports from any thread that the given player could not move. It is
+		 * queued like a move, and fails the future of the last <tt>submitMove
+		 * </tt> if the player is the <tt>ComputerPlayer</tt> to move.
+		 */
+		void failMove(Player mover, RuntimeException reason) {
+			sequencer.submit(new MoveSequencer.MoveRequest(mover, -1, -1, null, reason));
+		}
+		
+		/**
+		 * Called by the <tt>MoveSequencer</tt> once a move has been put on the
+		 * board: it passes the turn, notifies the handlers & listeners, and
+		 * schedules the move of the <tt>ComputerPlayer</tt> when it is next.
+		 * 
+		 * @return the move along with the state of the game after it
+		 */
+		MoveResult notifyMove(Player mover, int rowIdx, int colIdx) {
 			if(nextTurn == MoveType.O)
 				nextTurn = MoveType.X;
 			else
@@ -113,24 +183,47 @@ public class GameController {
 					);
 			
 			MoveType winnerType = gameSet.findWinner();
-			GameWonEvent gameWonEvent = new GameWonEvent(GameEventType.GAME_WON,
-					winnerType, gameSet.getWinCacheIdentifier(), gameSet.getWinCacheIndex());
 			
 			if(winnerType != MoveType.EMPTY) {
+				int window = gameSet.getWinningWindow();
+				WinningLines lines = gameSet.getWinningLines();
+				GameWonEvent gameWonEvent = new GameWonEvent(GameEventType.GAME_WON,
+						winnerType, gameSet.getWinCacheIdentifier(), gameSet.getWinCacheIndex(),
+						lines.getStartRow(window), lines.getStartColumn(window),
+						lines.getWinLength());
+				
 				gameListeners.forEach(
 							(GameListener listener) -> {
 								listener.handle(gameWonEvent);
 							}
 						);
-				return;
+				finished = true;
+				return (new MoveResult(mover.assignedSide(), rowIdx, colIdx,
+						MoveResult.Outcome.WON, winnerType));
+			}
+			
+			if(gameSet.getEmptyArea() == 0) {
+				GameEvent gameDrawnEvent = new GameEvent(GameEventType.GAME_DRAWN, mover.assignedSide());
+				
+				gameListeners.forEach(
+							(GameListener listener) -> {
+								listener.handle(gameDrawnEvent);
+							}
+						);
+				finished = true;
+				return (new MoveResult(mover.assignedSide(), rowIdx, colIdx,
+						MoveResult.Outcome.DRAWN, MoveType.EMPTY));
 			}
 			
 			if(getNextMover() == null) {
 				if(nextTurn == MoveType.O)
-					internOffloader.submit(((ComputerPlayer) o).getCallablePlay());
+					scheduleMove((ComputerPlayer) o);
 				else
-					internOffloader.submit(((ComputerPlayer) x).getCallablePlay());
-			}		
+					scheduleMove((ComputerPlayer) x);
+			}
+			
+			return (new MoveResult(mover.assignedSide(), rowIdx, colIdx,
+					MoveResult.Outcome.IN_PROGRESS, MoveType.EMPTY));
 		}
 	
 	}
@@ -138,13 +231,59 @@ public class GameController {
 	Board gameSet;
 	Player o;
 	Player x;
-	MoveType nextTurn;
 	
-	LinkedList<PlayerMoveHandler> moveHandlers = new LinkedList<PlayerMoveHandler>();
-	LinkedList<GameListener> gameListeners = new LinkedList<GameListener>();
+	/**
+	 * The side to move next. It is written only by the thread applying the
+	 * moves, and read by any thread to reject moves out of turn.
+	 */
+	volatile MoveType nextTurn;
+	
+	/**
+	 * Whether a player has won, or the board has been filled.
+	 */
+	volatile boolean finished;
+	volatile boolean closed;
+	
+	CopyOnWriteArrayList<PlayerMoveHandler> moveHandlers = new CopyOnWriteArrayList<PlayerMoveHandler>();
+	CopyOnWriteArrayList<GameListener> gameListeners = new CopyOnWriteArrayList<GameListener>();
 	Bridge playerBridge = new Bridge();
 	
-	final ExecutorService internOffloader = Executors.newSingleThreadExecutor();
+	/**
+	 * Applies the moves submitted by the players, from any thread, one at a
+	 * time.
+	 */
+	final MoveSequencer sequencer = new MoveSequencer(this::apply);
+	
+	/**
+	 * Runs the moves of the <tt>ComputerPlayer</tt>, if any, on the workers
+	 * shared by all games.
+	 */
+	AiScheduler scheduler = AiScheduler.shared();
+	
+	/**
+	 * The queue of this game in <tt>scheduler</tt>, created on the first move
+	 * of the <tt>ComputerPlayer</tt>.
+	 */
+	volatile AiScheduler.GameQueue computerMoves;
+	
+	/**
+	 * The future returned by the last <tt>submitMove</tt>, until it has been
+	 * completed by the move which ends the turn.
+	 */
+	volatile CompletableFuture<MoveResult> pendingReply;
+	
+	/**
+	 * Whether the move of the <tt>ComputerPlayer</tt> has been scheduled, and
+	 * not yet applied.
+	 */
+	boolean computerToMove;
+	
+	/**
+	 * The snapshot of the board after the last move applied. It is taken by
+	 * the thread applying the moves, the only one which may call <tt>
+	 * Board.snapshot()</tt>, and published to the other threads.
+	 */
+	volatile BoardSnapshot snapshot;
 	
 	/**
 	 * Constructs a new <tt>GameController</tt> with both players
@@ -153,30 +292,76 @@ public class GameController {
 	 * @param boardSize - the size of the board
 	 */
 	GameController(int boardSize) {
-		gameSet = new Board(boardSize);
+		this(boardSize, boardSize);
+	}
+	
+	/**
+	 * Constructs a new <tt>GameController</tt> with both players as a <tt>
+	 * HumanPlayer</tt>, on which <tt>winLength</tt> squares in a row win.
+	 * 
+	 * @param boardSize - the size of the board
+	 * @param winLength - the no. of squares in a row needed to win
+	 */
+	GameController(int boardSize, int winLength) {
+		gameSet = new Board(boardSize, winLength);
 		o = new HumanPlayer(playerBridge, gameSet, MoveType.O);
 		x = new HumanPlayer(playerBridge, gameSet, MoveType.X);
 		nextTurn = MoveType.O;
+		snapshot = gameSet.snapshot();
 	}
 
 	GameController(int boardSize, MoveType humanMove) {
-		gameSet = new Board(boardSize);
+		this(boardSize, humanMove, ComputerPlayer.Mode.MEDIUM);
+	}
+	
+	/**
+	 * Constructs a new single-player <tt>GameController</tt> in which
+	 * the computer plays at the given level.
+	 * 
+	 * @param boardSize - the size of the board
+	 * @param humanMove - the side of the <tt>HumanPlayer</tt>
+	 * @param computerMode - the level of the <tt>ComputerPlayer</tt>
+	 */
+	GameController(int boardSize, MoveType humanMove, ComputerPlayer.Mode computerMode) {
+		this(boardSize, boardSize, humanMove, computerMode);
+	}
+	
+	/**
+	 * Constructs a new single-player <tt>GameController</tt> in which
+	 * the computer plays at the given level, and <tt>winLength</tt> squares
+	 * in a row win.
+	 * 
+	 * @param boardSize - the size of the board
+	 * @param winLength - the no. of squares in a row needed to win
+	 * @param humanMove - the side of the <tt>HumanPlayer</tt>
+	 * @param computerMode - the level of the <tt>ComputerPlayer</tt>
+	 */
+	GameController(int boardSize, int winLength, MoveType humanMove,
+			ComputerPlayer.Mode computerMode) {
+		gameSet = new Board(boardSize, winLength);
+		ComputerPlayer computer;
 		
 		if(humanMove == MoveType.O) {
 			o = new HumanPlayer(playerBridge, gameSet, MoveType.O);
-			x = new ComputerPlayer(playerBridge, gameSet, MoveType.X);
+			x = computer = new ComputerPlayer(playerBridge, gameSet, MoveType.X);
 		} else {
-			o = new ComputerPlayer(playerBridge, gameSet, MoveType.O);
+			o = computer = new ComputerPlayer(playerBridge, gameSet, MoveType.O);
 			x = new HumanPlayer(playerBridge, gameSet, MoveType.X);
 		}
 		
+		computer.setMode(computerMode);
 		nextTurn = MoveType.O;
+		snapshot = gameSet.snapshot();
 	}
 	
 	public int getBoardSize() {
 		return (gameSet.getSide());
 	}
 	
+	public int getWinLength() {
+		return (gameSet.getWinLength());
+	}
+	
 	public HumanPlayer getPlayerO() {
 		if(o instanceof HumanPlayer)
 			return ((HumanPlayer) o);
@@ -199,6 +384,13 @@ public class GameController {
 		return (!isSinglePlayer());
 	}
 	
+	/**
+	 * Returns whether a player has won, or the board has been filled.
+	 */
+	public boolean isGameOver() {
+		return (finished);
+	}
+	
 	public HumanPlayer getNextMover() {
 		if(nextTurn == MoveType.O) {
 			return (getPlayerO());
@@ -207,6 +399,220 @@ public class GameController {
 		}
 	}
 	
+	/**
+	 * Queues the next move of the given computer player on the <tt>
+	 * AiScheduler</tt>, which searches the snapshot of the last move applied.
+	 * <tt>HARD</tt> searches run behind the quick replies of other games.
+	 */
+	void scheduleMove(ComputerPlayer computer) {
+		if(computerMoves == null)
+			computerMoves = scheduler.newQueue();
+		if(computerToMove)
+			return;
+		
+		computerToMove = true;
+		
+		AiScheduler.Priority priority = (computer.getMode() == ComputerPlayer.Mode.HARD)
+				? AiScheduler.Priority.LONG : AiScheduler.Priority.SHORT;
+		Callable<Void> play = computer.newCallablePlay(snapshot);
+		
+		computerMoves.submit(() -> {
+			try {
+				play.call();
+			} catch(Exception e) {
+				playerBridge.failMove(computer, (e instanceof RuntimeException)
+						? (RuntimeException) e : new CompletionException(e));
+				throw e;
+			}
+			
+			return (null);
+		}, priority);
+	}
+	
+	/**
+	 * Returns the reason why the given player cannot move now; <tt>null</tt>,
+	 * if it can. Only reads volatile fields, so that moves out of turn are
+	 * rejected without being queued.
+	 */
+	private IllegalStateException checkTurn(Player mover) {
+		if(closed)
+			return (new IllegalStateException("The game has been closed"));
+		if(finished)
+			return (new IllegalStateException("The game is over"));
+		if(mover.assignedSide() != nextTurn)
+			return (new IllegalStateException("It is not the turn of " + mover.assignedSide()));
+		
+		return (null);
+	}
+	
+	/**
+	 * Applies a move taken from the <tt>MoveSequencer</tt>. The checks of
+	 * <tt>checkTurn</tt> are repeated, as other moves may have been applied
+	 * since the move was submitted. A request of a negative row asks the
+	 * <tt>ComputerPlayer</tt> to move, or reports that it could not. If the
+	 * move of the <tt>ComputerPlayer</tt> fails, the game stops waiting for
+	 * it.
+	 */
+	private void apply(MoveSequencer.MoveRequest move) {
+		boolean computerMove = move.mover instanceof ComputerPlayer;
+		
+		try {
+			applyMove(move, computerMove);
+		} catch(RuntimeException e) {
+			if(computerMove)
+				failComputerMove(e);
+			
+			throw e;
+		}
+	}
+	
+	private void applyMove(MoveSequencer.MoveRequest move, boolean computerMove) {
+		if(move.failure != null) {
+			if(computerMove && computerToMove)
+				failComputerMove(move.failure);
+			
+			return;
+		}
+		
+		IllegalStateException rejection = checkTurn(move.mover);
+		
+		if(rejection != null) {
+			if(move.reply != null)
+				move.reply.completeExceptionally(rejection);
+			
+			return;
+		}
+		
+		if(move.row < 0) {
+			if(computerToMove) {
+				move.reply.completeExceptionally(
+						new IllegalStateException("The computer is already searching its move"));
+				return;
+			}
+			
+			pendingReply = move.reply;
+			scheduleMove((ComputerPlayer) move.mover);
+			return;
+		}
+		
+		if(!gameSet.setState(move.mover.assignedSide(), move.row, move.column)) {
+			IllegalArgumentException error =
+					new IllegalArgumentException("(Row, Column) given has already been filled");
+			
+			if(move.reply != null)
+				move.reply.completeExceptionally(error);
+			if(computerMove)
+				failComputerMove(error);
+			
+			return;
+		}
+		
+		snapshot = gameSet.snapshot();
+		
+		// The reply to a human move is awaited until the computer has moved
+		if(computerMove)
+			computerToMove = false;
+		else
+			pendingReply = move.reply;
+		
+		MoveResult result = playerBridge.notifyMove(move.mover, move.row, move.column);
+		
+		if(computerMove && move.reply != null)
+			move.reply.complete(result);
+		if(computerMove || result.isGameOver() || getNextMover() != null)
+			completeReply(result);
+	}
+	
+	/**
+	 * Gives up on the move of the <tt>ComputerPlayer</tt>, so that it can be
+	 * scheduled again, and fails the future returned by the last <tt>
+	 * submitMove</tt>, if any, with the given error.
+	 */
+	private void failComputerMove(RuntimeException error) {
+		computerToMove = false;
+		
+		CompletableFuture<MoveResult> reply = pendingReply;
+		
+		if(reply != null) {
+			pendingReply = null;
+			reply.completeExceptionally(error);
+		}
+	}
+	
+	/**
+	 * Completes the future returned by the last <tt>submitMove</tt>, if any.
+	 */
+	private void completeReply(MoveResult result) {
+		CompletableFuture<MoveResult> reply = pendingReply;
+		
+		if(reply != null) {
+			pendingReply = null;
+			reply.complete(result);
+		}
+	}
+	
+	/**
+	 * <p>
+	 * Plays the given square for the <tt>HumanPlayer</tt> whose turn it is,
+	 * without waiting for the reply of the computer. The future returned
+	 * completes with the move of the <tt>ComputerPlayer</tt> in reply, once
+	 * it has been searched; or with the move submitted, if it ends the game
+	 * or if the game has two players.
+	 * 
+	 * <p>
+	 * The future fails with an <tt>IllegalStateException</tt> if it is not
+	 * the turn of a human, or the game is over; with an <tt>
+	 * IllegalArgumentException</tt> if the square is filled or out of
+	 * bounds; and is cancelled if the game is closed before the reply. It can
+	 * be given a deadline with <tt>orTimeout</tt>.
+	 * 
+	 * @param row - the row of the square
+	 * @param column - the column of the square
+	 */
+	public CompletableFuture<MoveResult> submitMove(int row, int column) {
+		HumanPlayer mover = getNextMover();
+		
+		if(mover == null)
+			return (CompletableFuture.failedFuture(
+					new IllegalStateException("It is not the turn of a human player")));
+		
+		return (mover.playAt(row, column));
+	}
+	
+	/**
+	 * Has the <tt>ComputerPlayer</tt> make its move, when it is its turn
+	 * without a human move before it (i.e. when it plays <tt>O</tt>). The
+	 * future returned completes with its move, like that of <tt>
+	 * submitMove</tt>.
+	 */
+	public CompletableFuture<MoveResult> submitComputerMove() {
+		Player computer = (nextTurn == MoveType.O) ? o : x;
+		
+		if(!(computer instanceof ComputerPlayer))
+			return (CompletableFuture.failedFuture(
+					new IllegalStateException("It is not the turn of the computer")));
+		
+		IllegalStateException rejection = checkTurn(computer);
+		
+		if(rejection != null)
+			return (CompletableFuture.failedFuture(rejection));
+		
+		CompletableFuture<MoveResult> reply = new CompletableFuture<MoveResult>();
+		sequencer.submit(new MoveSequencer.MoveRequest(computer, -1, -1, reply));
+		
+		return (reply);
+	}
+	
+	/**
+	 * Returns an immutable snapshot of the board after the last move applied,
+	 * which any thread (e.g. a hint or analysis worker) can hold while the
+	 * game moves on. It is taken by the thread applying the moves, once per
+	 * move, so reading it costs a volatile read.
+	 */
+	public BoardSnapshot snapshot() {
+		return (snapshot);
+	}
+	
 	public void addMoveHandler(PlayerMoveHandler moveHandler) {
 		moveHandlers.add(moveHandler);
 	}
@@ -215,17 +621,28 @@ public class GameController {
 		gameListeners.add(gameListener);
 	}
 	
+	/**
+	 * Cancels the pending move of the <tt>ComputerPlayer</tt>, interrupts the
+	 * one being searched, if any, and shuts down its engine. The future of the last <tt>submitMove
+	 * </tt> is cancelled, if it has not completed.
+	 */
 	public void close() {
-		internOffloader.shutdownNow();
-		try {
-			internOffloader.awaitTermination(100, TimeUnit.MILLISECONDS);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+		closed = true;
+		
+		if(computerMoves != null)
+			computerMoves.close();
+		if(o instanceof ComputerPlayer)
+			((ComputerPlayer) o).close();
+		if(x instanceof ComputerPlayer)
+			((ComputerPlayer) x).close();
+		
+		CompletableFuture<MoveResult> reply = pendingReply;
+		
+		if(reply != null)
+			reply.cancel(false);
 	}
 	
 	protected void finalize() {
-		internOffloader.shutdownNow();
+		close();
 	}
 }
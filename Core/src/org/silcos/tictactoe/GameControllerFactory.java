@@ -12,12 +12,14 @@ public class GameControllerFactory {
 	private UserPreferences lastSettings = null;
 	
 	public GameController newSinglePlayerGameController() {
-		return (new GameController(lastSettings.getBoardSize(), lastSettings.getDefaultSide()));
+		return (new GameController(lastSettings.getBoardSize(), lastSettings.getWinLength(),
+				lastSettings.getDefaultSide(), lastSettings.getComputerMode()));
 	}
 	
 	public GameController newSinglePlayerGameController(int boardSize) {
 		lastSettings.setBoardSize(boardSize);
-		return (new GameController(boardSize, lastSettings.getDefaultSide()));
+		return (new GameController(boardSize, lastSettings.getWinLength(),
+				lastSettings.getDefaultSide(), lastSettings.getComputerMode()));
 	}
 	
 	/**
@@ -30,7 +32,8 @@ public class GameControllerFactory {
 	 */
 	public GameController newSinglePlayerGameController(UserPreferences settings) {
 		lastSettings = settings;
-		return (new GameController(settings.getBoardSize(), settings.getDefaultSide()));
+		return (new GameController(settings.getBoardSize(), settings.getWinLength(),
+				settings.getDefaultSide(), settings.getComputerMode()));
 	}
 	
 	/**
@@ -42,6 +45,6 @@ public class GameControllerFactory {
 	 * 					this context.
 	 */
 	public GameController newTwoPlayerGameController(UserPreferences settings) {
-		return (new GameController(settings.getBoardSize()));
+		return (new GameController(settings.getBoardSize(), settings.getWinLength()));
 	}
 }
@@ -0,0 +1,120 @@
+package org.silcos.tictactoe;
+
+/**
+ * Maps <tt>long</tt> keys to <tt>long</tt> values using open addressing
+ * with linear probing, without boxing or allocating per entry. Removed
+ * entries are back-filled by shifting the entries after them, so that no
+ * tombstones are left. The table doubles when it becomes half full.
+ * 
+ * @author Shukant Pal
+ */
+final class LongLongMap {
+	
+	/**
+	 * Returned by <tt>get</tt> & <tt>remove</tt> for keys not in the map.
+	 */
+	static final long ABSENT = Long.MIN_VALUE;
+	
+	private long[] keys;
+	private long[] values;
+	private boolean[] used;
+	private int mask;
+	private int size;
+	
+	/**
+	 * Instantiates an empty map which can hold <tt>expectedSize</tt> entries
+	 * before growing.
+	 */
+	LongLongMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+		
+		this.keys = new long[capacity];
+		this.values = new long[capacity];
+		this.used = new boolean[capacity];
+		this.mask = capacity - 1;
+	}
+	
+	private int slotOf(long key) {
+		return ((int) Zobrist.mix(key) & mask);
+	}
+	
+	long get(long key) {
+		for(int slot = slotOf(key); used[slot]; slot = (slot + 1) & mask) {
+			if(keys[slot] == key)
+				return (values[slot]);
+		}
+		
+		return (ABSENT);
+	}
+	
+	void put(long key, long value) {
+		int slot = slotOf(key);
+		
+		for(; used[slot]; slot = (slot + 1) & mask) {
+			if(keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+		}
+		
+		keys[slot] = key;
+		values[slot] = value;
+		used[slot] = true;
+		
+		if(++(size) * 2 > keys.length)
+			grow();
+	}
+	
+	long remove(long key) {
+		int slot = slotOf(key);
+		
+		for(; used[slot]; slot = (slot + 1) & mask) {
+			if(keys[slot] == key)
+				break;
+		}
+		
+		if(!used[slot])
+			return (ABSENT);
+		
+		long value = values[slot];
+		int hole = slot;
+		
+		/* Shift back the entries which probed past the hole */
+		for(int next = (hole + 1) & mask; used[next]; next = (next + 1) & mask) {
+			int home = slotOf(keys[next]);
+			
+			if(((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+		}
+		
+		used[hole] = false;
+		--(size);
+		
+		return (value);
+	}
+	
+	int size() {
+		return (size);
+	}
+	
+	private void grow() {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		boolean[] oldUsed = used;
+		
+		keys = new long[oldKeys.length * 2];
+		values = new long[oldKeys.length * 2];
+		used = new boolean[oldKeys.length * 2];
+		mask = keys.length - 1;
+		size = 0;
+		
+		for(int slot = 0; slot < oldKeys.length; slot++) {
+			if(oldUsed[slot])
+				put(oldKeys[slot], oldValues[slot]);
+		}
+	}
+
+}
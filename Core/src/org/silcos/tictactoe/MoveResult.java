@@ -0,0 +1,77 @@
+package org.silcos.tictactoe;
+
+/**
+ * Describes a move made in a game & the state of the game after it. It is
+ * what the <tt>CompletableFuture</tt> returned by <tt>GameController.
+ * submitMove</tt> completes with: the reply of the <tt>ComputerPlayer</tt>
+ * in a single-player game, or the move submitted itself when no reply
+ * follows (in a two-player game, or once the game is over).
+ * 
+ * @author Shukant Pal
+ */
+public final class MoveResult {
+	
+	public enum Outcome {
+		IN_PROGRESS,
+		WON,
+		DRAWN
+	}
+	
+	private final MoveType mover;
+	private final int row;
+	private final int column;
+	private final Outcome outcome;
+	private final MoveType winner;
+	
+	/**
+	 * Instantiates a <tt>MoveResult</tt>.
+	 * 
+	 * @param mover - the side which made the move
+	 * @param row - the row of the move
+	 * @param column - the column of the move
+	 * @param outcome - the state of the game after the move
+	 * @param winner - the side which has won; <tt>MoveType.EMPTY</tt>, if none
+	 */
+	MoveResult(MoveType mover, int row, int column, Outcome outcome, MoveType winner) {
+		this.mover = mover;
+		this.row = row;
+		this.column = column;
+		this.outcome = outcome;
+		this.winner = winner;
+	}
+	
+	public MoveType getMover() {
+		return (mover);
+	}
+	
+	public int getRow() {
+		return (row);
+	}
+	
+	public int getColumn() {
+		return (column);
+	}
+	
+	public Outcome getOutcome() {
+		return (outcome);
+	}
+	
+	/**
+	 * Returns the side which has won the game; <tt>MoveType.EMPTY</tt>, if the
+	 * game is drawn or still in progress.
+	 */
+	public MoveType getWinner() {
+		return (winner);
+	}
+	
+	public boolean isGameOver() {
+		return (outcome != Outcome.IN_PROGRESS);
+	}
+	
+	@Override
+	public String toString() {
+		return (mover + " at (" + row + ", " + column + "): " + outcome
+				+ ((outcome == Outcome.WON) ? " by " + winner : ""));
+	}
+
+}
@@ -0,0 +1,124 @@
+package org.silcos.tictactoe;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Applies the moves of a game one at a time & in the order submitted, from
+ * any no. of threads, without locking. Moves are appended to an intrusive
+ * multiple-producer, single-consumer queue: a producer swaps itself in as
+ * the tail and links the old tail to it.
+ * 
+ * <p>
+ * There is no thread of its own. The producer which finds the sequencer
+ * idle (i.e. raises <tt>pending</tt> from zero) becomes its consumer and
+ * applies moves until none is left, including those submitted meanwhile by
+ * other threads. Hence, the moves of a game are never applied by two threads
+ * at once, while a producer never waits for another: it either drains the
+ * queue or leaves its move for the thread draining it.
+ * 
+ * @author Shukant Pal
+ */
+final class MoveSequencer {
+	
+	/**
+	 * A move waiting in the queue of a <tt>MoveSequencer</tt>.
+	 */
+	static final class MoveRequest {
+		
+		final Player mover;
+		final int row;
+		final int column;
+		
+		/**
+		 * The future to complete once the move has been answered; <tt>null
+		 * </tt>, if the mover does not wait for one.
+		 */
+		final CompletableFuture<MoveResult> reply;
+		
+		/**
+		 * Why the mover could not find a move, when it reports that instead
+		 * of a move; <tt>null</tt>, otherwise.
+		 */
+		final RuntimeException failure;
+		
+		volatile MoveRequest next;
+		
+		MoveRequest(Player mover, int row, int column, CompletableFuture<MoveResult> reply) {
+			this(mover, row, column, reply, null);
+		}
+		
+		MoveRequest(Player mover, int row, int column, CompletableFuture<MoveResult> reply,
+				RuntimeException failure) {
+			this.mover = mover;
+			this.row = row;
+			this.column = column;
+			this.reply = reply;
+			this.failure = failure;
+		}
+	
+	}
+	
+	private final Consumer<MoveRequest> applier;
+	
+	/**
+	 * The last move applied, whose <tt>next</tt> is the first move pending.
+	 * Only read & written by the consumer.
+	 */
+	private MoveRequest head;
+	private final AtomicReference<MoveRequest> tail;
+	
+	/**
+	 * The no. of moves submitted but not yet applied.
+	 */
+	private final AtomicInteger pending = new AtomicInteger();
+	
+	/**
+	 * Instantiates a <tt>MoveSequencer</tt>.
+	 * 
+	 * @param applier - applies each move, on the thread draining the queue
+	 */
+	MoveSequencer(Consumer<MoveRequest> applier) {
+		this.applier = applier;
+		this.head = new MoveRequest(null, -1, -1, null);
+		this.tail = new AtomicReference<MoveRequest>(head);
+	}
+	
+	/**
+	 * Queues the given move, and applies the queue on this thread if no other
+	 * thread is applying it.
+	 */
+	void submit(MoveRequest move) {
+		MoveRequest previous = tail.getAndSet(move);
+		previous.next = move;
+		
+		if(pending.getAndIncrement() == 0)
+			drain();
+	}
+	
+	private void drain() {
+		do {
+			MoveRequest move;
+			
+			// A producer may have swapped the tail but not yet linked it
+			while((move = head.next) == null)
+				Thread.onSpinWait();
+			
+			head = move;
+			
+			try {
+				applier.accept(move);
+			} catch(RuntimeException e) {
+				System.err.println("Warning *:* Move at (" + move.row + ", " + move.column
+						+ ") failed: " + e);
+				
+				if(move.reply != null)
+					move.reply.completeExceptionally(e);
+			}
+		} while(pending.decrementAndGet() != 0);
+	}
+
+}
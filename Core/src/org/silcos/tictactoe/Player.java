@@ -1,12 +1,14 @@
 package org.silcos.tictactoe;
 
+import java.util.concurrent.CompletableFuture;
+
 public abstract class Player {
 	
 	GameController.Bridge gameBridge;
-	Board gameSet;
+	GameBoard gameSet;
 	MoveType side;
 	
-	public Player(GameController.Bridge gameBridge, Board gameSet, MoveType assignedSide) {
+	public Player(GameController.Bridge gameBridge, GameBoard gameSet, MoveType assignedSide) {
 		this.gameBridge = gameBridge;
 		this.gameSet = gameSet;
 		this.side = assignedSide;
@@ -16,12 +18,24 @@ public abstract class Player {
 		return (gameSet.getSide());
 	}
 	
-	protected Board getGameSet() {
+	protected GameBoard getGameSet() {
 		return (gameSet);
 	}
 	
-	protected void notifyPlay(int row, int col) {
-		gameBridge.notifyMove(this, row, col);
+	/**
+	 * Submits a move of this player to the game, which puts it on the board
+	 * once the moves submitted before it have been applied.
+	 */
+	protected CompletableFuture<MoveResult> submitPlay(int row, int col) {
+		return (gameBridge.submitMove(this, row, col));
+	}
+	
+	/**
+	 * Reports to the game that this player could not find a move, so that
+	 * the game does not wait for it.
+	 */
+	protected void failPlay(RuntimeException reason) {
+		gameBridge.failMove(this, reason);
 	}
 	
 	public MoveType assignedSide() {
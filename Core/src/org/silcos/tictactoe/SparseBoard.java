@@ -0,0 +1,752 @@
+package org.silcos.tictactoe;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>
+ * Board backend for very large or unbounded grids, e.g. 100x100 boards or
+ * gomoku-style play on an infinite grid, on which <tt>winLength</tt>
+ * squares in a row win. Unlike <tt>Board</tt>, it does not allocate its
+ * squares up front; its memory grows with the no. of moves made, not with
+ * its area.
+ * 
+ * <p>
+ * The filled squares are held in a primitive open-addressing map keyed by
+ * their coordinates. The no. of squares each side holds on a line (a row,
+ * a column or a diagonal of any length) is tracked in another such map,
+ * where a line is <i>materialized</i> only when a move is first made on
+ * it. A move is checked for a win by scanning at most <tt>winLength - 1
+ * </tt> squares on both sides of it in each direction, i.e. in O(<tt>
+ * winLength</tt>).
+ * 
+ * <p>
+ * It is a backend of <tt>GameBoard</tt>, like <tt>Board</tt>, so players &
+ * the <tt>BoardAnalyzer</tt> can run on a bounded <tt>SparseBoard</tt>. On
+ * a bounded board, its position hash is equal to that of a <tt>Board</tt>
+ * holding the same position. On an unbounded board, the Zobrist keys are
+ * derived from the coordinates of the squares (see <tt>Zobrist.keyAt</tt>),
+ * and the queries which need a bounded board throw an <tt>
+ * UnsupportedOperationException</tt>.
+ * 
+ * @author Shukant Pal
+ */
+public class SparseBoard implements GameBoard {
+	
+	/**
+	 * The side of an unbounded board, on which squares can have any
+	 * (including negative) coordinates.
+	 */
+	public static final int UNBOUNDED = 0;
+	
+	private static final int INITIAL_MOVES = 64;
+	
+	private static final MoveType[] STATES = MoveType.values();
+	
+	/**
+	 * The row & column steps of each line direction, indexed by the ordinal
+	 * of its <tt>GameController.LineIdentifier</tt>.
+	 */
+	private static final int[] ROW_STEPS = { 0, 1, 1, 1 };
+	private static final int[] COLUMN_STEPS = { 1, 0, 1, -1 };
+	
+	private static final GameController.LineIdentifier[] DIRECTIONS = {
+		GameController.LineIdentifier.ROW,
+		GameController.LineIdentifier.COLUMN,
+		GameController.LineIdentifier.DIAGONAL_ULBR,
+		GameController.LineIdentifier.DIAGONAL_URBL
+	};
+	
+	/**
+	 * Iterates over the rows, columns or the two main diagonals of a bounded
+	 * <tt>SparseBoard</tt>, like <tt>Board.LineIterator</tt>. Lines without
+	 * any move are not materialized; they are reported as empty.
+	 * 
+	 * @author Shukant Pal
+	 */
+	public class LineIterator implements GameBoard.LineIterator {
+		
+		private final GameController.LineIdentifier type;
+		private final int lineCount;
+		private int lineIndex;
+		
+		LineIterator(GameController.LineIdentifier type, int lineCount, int startIndex) {
+			this.type = type;
+			this.lineCount = lineCount;
+			setLineIndex(startIndex);
+		}
+		
+		private GameController.LineIdentifier currentType() {
+			if(type == GameController.LineIdentifier.DIAGONAL_ULBR && lineIndex == 1)
+				return (GameController.LineIdentifier.DIAGONAL_URBL);
+			
+			return (type);
+		}
+		
+		private int currentLine() {
+			if(currentType() == GameController.LineIdentifier.DIAGONAL_URBL)
+				return (side - 1);
+			else if(currentType() == GameController.LineIdentifier.DIAGONAL_ULBR)
+				return (0);
+			else
+				return (lineIndex);
+		}
+		
+		public int getLineIndex() {
+			return (lineIndex);
+		}
+		
+		public int getOFilled() {
+			return (SparseBoard.this.getOFilled(currentType(), currentLine()));
+		}
+		
+		public int getXFilled() {
+			return (SparseBoard.this.getXFilled(currentType(), currentLine()));
+		}
+		
+		public int getFilled() {
+			return (getXFilled() + getOFilled());
+		}
+		
+		public int getFilled(MoveType assignedSide) {
+			if(assignedSide == MoveType.O) {
+				return (getOFilled());
+			} else {
+				return (getXFilled());
+			}
+		}
+		
+		/**
+		 * Returns whether the line is dirty w.r.t given observer, i.e.
+		 * if the line is filled by squares of the opponent player.
+		 * 
+		 * @param observer - the player who is checking this line
+		 */
+		public boolean isLineDirty(MoveType observer) {
+			if(observer == MoveType.O && getXFilled() > 0) {
+				return (true);
+			} else if(observer == MoveType.X && getOFilled() > 0) {
+				return (true);
+			} else {
+				return (false);
+			}
+		}
+		
+		public void setLineIndex(int newIndex) {
+			if(newIndex >= 0 && newIndex < lineCount) {
+				lineIndex = newIndex;
+			} else {
+				throw new IllegalArgumentException("Index out of bounds");
+			}
+		}
+		
+		public boolean next() {
+			if(lineIndex == lineCount - 1)
+				return (false);
+			
+			++(lineIndex);
+			return (true);
+		}
+		
+		public boolean last() {
+			if(lineIndex == 0)
+				return (false);
+			
+			--(lineIndex);
+			return (true);
+		}
+		
+		public int lineSize() {
+			return (getSide());
+		}
+	
+	}
+	
+	private final int side;
+	private final int winLength;
+	
+	/**
+	 * Maps the coordinates of each filled square to the ordinal of its
+	 * state.
+	 */
+	private final LongLongMap cells;
+	
+	/**
+	 * Maps each materialized line to the no. of squares held on it by each
+	 * side, packed as <tt>(oFilled << 32) | xFilled</tt>.
+	 */
+	private final LongLongMap lines;
+	
+	private int dirtyCount;
+	private int[] hotspot;
+	private MoveType nextState;
+	private long positionHash;
+	
+	private MoveType winner;
+	private int winPly;
+	private int winStartRow;
+	private int winStartColumn;
+	private GameController.LineIdentifier winDirection;
+	
+	/**
+	 * The stack of moves made on this board, holding the coordinates of each
+	 * square along with the <tt>hotspot</tt> & <tt>nextState</tt> before the
+	 * move. It grows with the no. of moves.
+	 */
+	private long[] moveCells;
+	private long[] previousHotspots;
+	private MoveType[] previousNextStates;
+	
+	private SquareListener[] squareListeners = new SquareListener[0];
+	
+	/**
+	 * The snapshot of the current position, built by <tt>snapshot()</tt> from
+	 * the move stack; <tt>null</tt>, once a move has been made or taken back
+	 * since.
+	 */
+	private BoardSnapshot snapshot;
+	
+	/**
+	 * Instantiates an empty <tt>SparseBoard</tt> on which player <b>O</b>
+	 * moves first.
+	 * 
+	 * @param side - the no. of squares in each row & column; <tt>UNBOUNDED
+	 * 				</tt>, for an infinite grid
+	 * @param winLength - the no. of squares in a row needed to win; it must
+	 * 				not exceed the side of a bounded board
+	 */
+	public SparseBoard(int side, int winLength) {
+		if(side < 0)
+			throw new IllegalArgumentException("The side of the board must not be negative");
+		
+		if(winLength < 1 || (side != UNBOUNDED && winLength > side))
+			throw new IllegalArgumentException("The win length must be in [1, side]");
+		
+		this.side = side;
+		this.winLength = winLength;
+		this.cells = new LongLongMap(INITIAL_MOVES);
+		this.lines = new LongLongMap(INITIAL_MOVES);
+		this.dirtyCount = 0;
+		this.hotspot = new int[2];
+		this.nextState = MoveType.O;
+		this.positionHash = 0L;
+		this.winner = MoveType.EMPTY;
+		
+		this.moveCells = new long[INITIAL_MOVES];
+		this.previousHotspots = new long[INITIAL_MOVES];
+		this.previousNextStates = new MoveType[INITIAL_MOVES];
+	}
+	
+	private static long pack(int high, int low) {
+		return (((long) high << 32) | (low & 0xFFFFFFFFL));
+	}
+	
+	private static int highOf(long packed) {
+		return ((int) (packed >> 32));
+	}
+	
+	private static int lowOf(long packed) {
+		return ((int) packed);
+	}
+	
+	private boolean checkBounds(int row, int column) {
+		return (side == UNBOUNDED
+				|| (row >= 0 && column >= 0 && row < side && column < side));
+	}
+	
+	/**
+	 * Returns the key of the line in the given direction through the square
+	 * at <tt>(row, column)</tt>.
+	 */
+	private static long lineKey(int direction, int row, int column) {
+		int index;
+		
+		switch(direction) {
+		case 0:
+			index = row;
+			break;
+		case 1:
+			index = column;
+			break;
+		case 2:
+			index = column - row;
+			break;
+		default:
+			index = row + column;
+			break;
+		}
+		
+		return (pack(direction, index));
+	}
+	
+	public int getSide() {
+		return (side);
+	}
+	
+	public boolean isUnbounded() {
+		return (side == UNBOUNDED);
+	}
+	
+	public int getWinLength() {
+		return (winLength);
+	}
+	
+	/**
+	 * Returns the no. of squares on this board; <tt>Integer.MAX_VALUE</tt>,
+	 * if it is unbounded.
+	 */
+	public int getArea() {
+		return (isUnbounded() ? Integer.MAX_VALUE : side * side);
+	}
+	
+	/**
+	 * Returns the no. of empty squares on this board; <tt>Integer.MAX_VALUE
+	 * </tt>, if it is unbounded.
+	 */
+	public int getEmptyArea() {
+		return (isUnbounded() ? Integer.MAX_VALUE : getArea() - dirtyCount);
+	}
+	
+	/**
+	 * Returns the no. of moves made on this board.
+	 */
+	public int getMoveCount() {
+		return (dirtyCount);
+	}
+	
+	public int[] getHotspot() {
+		return (hotspot);
+	}
+	
+	public MoveType getState(int row, int column) {
+		if(!checkBounds(row, column))
+			throw new IllegalArgumentException(
+					"(Row, Column) out of bounds for " + side + "x" + side + " board.");
+		
+		long state = cells.get(pack(row, column));
+		
+		return ((state == LongLongMap.ABSENT) ? MoveType.EMPTY : STATES[(int) state]);
+	}
+	
+	public MoveType getNextState() {
+		return (nextState);
+	}
+	
+	/**
+	 * Returns the 64-bit Zobrist hash of the position on this board.
+	 * 
+	 * @see Zobrist
+	 */
+	public long getPositionHash() {
+		return (positionHash);
+	}
+	
+	private long keyOf(MoveType state, int row, int column) {
+		if(isUnbounded())
+			return (Zobrist.keyAt(state, row, column));
+		else
+			return (Zobrist.keyOf(state, row * side + column));
+	}
+	
+	/**
+	 * Fills the square at <tt>(row, column)</tt> with <tt>newState</tt>,
+	 * like <tt>Board.setState</tt>.
+	 * 
+	 * @return - whether the square was filled; <tt>false</tt>, if it was
+	 * 			already filled.
+	 */
+	public boolean setState(MoveType newState, int row, int column) {
+		if(!checkBounds(row, column))
+			throw new IllegalArgumentException(
+					"(Row, Column) out of bounds for " + side + "x" + side + " board.");
+		
+		if(newState == MoveType.EMPTY)
+			return (false);
+		
+		long cell = pack(row, column);
+		
+		if(cells.get(cell) != LongLongMap.ABSENT)
+			return (false);
+		
+		if(dirtyCount == moveCells.length)
+			growStack();
+		
+		moveCells[dirtyCount] = cell;
+		previousHotspots[dirtyCount] = pack(hotspot[0], hotspot[1]);
+		previousNextStates[dirtyCount] = nextState;
+		++(dirtyCount);
+		
+		cells.put(cell, newState.ordinal());
+		positionHash ^= keyOf(newState, row, column);
+		countLines(row, column, newState, 1);
+		
+		hotspot[0] = row;
+		hotspot[1] = column;
+		nextState = (newState == MoveType.O) ? MoveType.X : MoveType.O;
+		
+		if(winner == MoveType.EMPTY)
+			scanWin(row, column, newState);
+		
+		snapshot = null;
+		notifySquareChanged(row, column, newState);
+		
+		return (true);
+	}
+	
+	/**
+	 * Makes the next move, i.e. fills the square at <tt>(row, column)</tt>
+	 * with <tt>getNextState()</tt>.
+	 */
+	public boolean makeMove(int row, int column) {
+		return (setState(nextState, row, column));
+	}
+	
+	/**
+	 * Takes back the last move made on this board in O(1), like <tt>
+	 * Board.unmakeMove()</tt>. The lines materialized by the move are kept.
+	 * 
+	 * @return - whether a move was taken back; <tt>false</tt>, if the board
+	 * 			is empty.
+	 */
+	public boolean unmakeMove() {
+		if(dirtyCount == 0)
+			return (false);
+		
+		if(winner != MoveType.EMPTY && winPly == dirtyCount) {
+			winner = MoveType.EMPTY;
+			winDirection = null;
+		}
+		
+		--(dirtyCount);
+		
+		long cell = moveCells[dirtyCount];
+		int row = highOf(cell);
+		int column = lowOf(cell);
+		MoveType oldState = STATES[(int) cells.remove(cell)];
+		
+		positionHash ^= keyOf(oldState, row, column);
+		countLines(row, column, oldState, -1);
+		
+		hotspot[0] = highOf(previousHotspots[dirtyCount]);
+		hotspot[1] = lowOf(previousHotspots[dirtyCount]);
+		nextState = previousNextStates[dirtyCount];
+		
+		snapshot = null;
+		notifySquareChanged(row, column, MoveType.EMPTY);
+		
+		return (true);
+	}
+	
+	private void growStack() {
+		int capacity = moveCells.length * 2;
+		long[] newMoveCells = new long[capacity];
+		long[] newHotspots = new long[capacity];
+		MoveType[] newNextStates = new MoveType[capacity];
+		
+		System.arraycopy(moveCells, 0, newMoveCells, 0, dirtyCount);
+		System.arraycopy(previousHotspots, 0, newHotspots, 0, dirtyCount);
+		System.arraycopy(previousNextStates, 0, newNextStates, 0, dirtyCount);
+		
+		moveCells = newMoveCells;
+		previousHotspots = newHotspots;
+		previousNextStates = newNextStates;
+	}
+	
+	/**
+	 * Adds <tt>delta</tt> to the counters of <tt>state</tt> on the four
+	 * lines through the given square, materializing them if needed.
+	 */
+	private void countLines(int row, int column, MoveType state, int delta) {
+		for(int direction = 0; direction < DIRECTIONS.length; direction++) {
+			long key = lineKey(direction, row, column);
+			long counts = lines.get(key);
+			
+			if(counts == LongLongMap.ABSENT)
+				counts = 0;
+			
+			if(state == MoveType.O)
+				counts += (long) delta << 32;
+			else
+				counts += delta;
+			
+			lines.put(key, counts);
+		}
+	}
+	
+	/**
+	 * Counts the squares held by <tt>state</tt> in a row through the given
+	 * square in each direction, looking at most <tt>winLength - 1</tt>
+	 * squares on each side, and records the first run which wins.
+	 */
+	private void scanWin(int row, int column, MoveType state) {
+		for(int direction = 0; direction < DIRECTIONS.length; direction++) {
+			int rowStep = ROW_STEPS[direction];
+			int columnStep = COLUMN_STEPS[direction];
+			int before = countRun(row, column, -rowStep, -columnStep, state);
+			int after = countRun(row, column, rowStep, columnStep, state);
+			
+			if(before + 1 + after >= winLength) {
+				winner = state;
+				winPly = dirtyCount;
+				winStartRow = row - before * rowStep;
+				winStartColumn = column - before * columnStep;
+				winDirection = DIRECTIONS[direction];
+				return;
+			}
+		}
+	}
+	
+	private int countRun(int row, int column, int rowStep, int columnStep, MoveType state) {
+		int run = 0;
+		long ordinal = state.ordinal();
+		
+		while(run < winLength - 1) {
+			row += rowStep;
+			column += columnStep;
+			
+			if(!checkBounds(row, column) || cells.get(pack(row, column)) != ordinal)
+				break;
+			
+			++(run);
+		}
+		
+		return (run);
+	}
+	
+	/**
+	 * Returns the index of an empty square on which <tt>observer</tt> would
+	 * win at once; -1, if it cannot win with one move. Only the square just
+	 * past the end of a run of <tt>observer</tt> can complete it, so each
+	 * square of <tt>observer</tt> is looked at in each direction, costing O(
+	 * <tt>moves * winLength</tt>).
+	 */
+	public int findWinningCell(MoveType observer) {
+		checkBounded();
+		
+		if(observer == MoveType.EMPTY)
+			return (-1);
+		
+		long ordinal = observer.ordinal();
+		
+		for(int move = 0; move < dirtyCount; move++) {
+			long cell = moveCells[move];
+			
+			if(cells.get(cell) != ordinal)
+				continue;
+			
+			int row = highOf(cell);
+			int column = lowOf(cell);
+			
+			for(int direction = 0; direction < DIRECTIONS.length; direction++) {
+				for(int sign = -1; sign <= 1; sign += 2) {
+					int rowStep = sign * ROW_STEPS[direction];
+					int columnStep = sign * COLUMN_STEPS[direction];
+					int run = countRun(row, column, rowStep, columnStep, observer);
+					int endRow = row + (run + 1) * rowStep;
+					int endColumn = column + (run + 1) * columnStep;
+					
+					if(!checkBounds(endRow, endColumn)
+							|| cells.get(pack(endRow, endColumn)) != LongLongMap.ABSENT)
+						continue;
+					
+					if(1 + countRun(endRow, endColumn, rowStep, columnStep, observer)
+							+ countRun(endRow, endColumn, -rowStep, -columnStep, observer) >= winLength)
+						return (endRow * side + endColumn);
+				}
+			}
+		}
+		
+		return (-1);
+	}
+	
+	/**
+	 * Returns the index of an empty square chosen uniformly at random; -1, if
+	 * the board is full. While at least half of the board is empty, squares
+	 * are drawn until an empty one is hit (at most two draws expected);
+	 * otherwise, the empty squares are counted off in order.
+	 * 
+	 * @param random - the generator to draw from
+	 */
+	public int randomEmptyCell(Random random) {
+		checkBounded();
+		
+		int emptyArea = getEmptyArea();
+		
+		if(emptyArea == 0)
+			return (-1);
+		
+		if(emptyArea >= getArea() / 2) {
+			for(;;) {
+				int cell = random.nextInt(getArea());
+				
+				if(cells.get(pack(cell / side, cell % side)) == LongLongMap.ABSENT)
+					return (cell);
+			}
+		}
+		
+		int skip = random.nextInt(emptyArea);
+		
+		for(int cell = 0; ; cell++) {
+			if(cells.get(pack(cell / side, cell % side)) == LongLongMap.ABSENT && skip-- == 0)
+				return (cell);
+		}
+	}
+	
+	/**
+	 * Returns an immutable snapshot of the current position, like <tt>
+	 * Board.snapshot()</tt>. The masks of both sides are built from the move
+	 * stack only when a snapshot is taken, and the snapshot is reused until
+	 * the next move.
+	 */
+	public BoardSnapshot snapshot() {
+		checkBounded();
+		
+		if(snapshot == null) {
+			int words = (getArea() + 63) / 64;
+			long[] oMask = new long[words];
+			long[] xMask = new long[words];
+			
+			for(int move = 0; move < dirtyCount; move++) {
+				long cell = moveCells[move];
+				int index = highOf(cell) * side + lowOf(cell);
+				long[] mask = (cells.get(cell) == MoveType.O.ordinal()) ? oMask : xMask;
+				
+				mask[index >>> 6] |= 1L << index;
+			}
+			
+			snapshot = new BoardSnapshot(side, winLength, oMask, xMask,
+					nextState, winner, dirtyCount, positionHash);
+		}
+		
+		return (snapshot);
+	}
+	
+	/**
+	 * Registers a listener to be notified whenever a square is filled or
+	 * emptied on this board.
+	 */
+	public void addSquareListener(SquareListener listener) {
+		squareListeners = Arrays.copyOf(squareListeners, squareListeners.length + 1);
+		squareListeners[squareListeners.length - 1] = listener;
+	}
+	
+	/**
+	 * Unregisters a listener added by <tt>addSquareListener</tt>.
+	 * 
+	 * @return - whether the listener was registered
+	 */
+	public boolean removeSquareListener(SquareListener listener) {
+		for(int idx = 0; idx < squareListeners.length; idx++) {
+			if(squareListeners[idx] == listener) {
+				SquareListener[] listeners = new SquareListener[squareListeners.length - 1];
+				
+				System.arraycopy(squareListeners, 0, listeners, 0, idx);
+				System.arraycopy(squareListeners, idx + 1, listeners, idx, listeners.length - idx);
+				squareListeners = listeners;
+				
+				return (true);
+			}
+		}
+		
+		return (false);
+	}
+	
+	private void notifySquareChanged(int row, int column, MoveType state) {
+		for(SquareListener listener : squareListeners)
+			listener.squareChanged(this, row, column, state);
+	}
+	
+	/**
+	 * Returns the winner of the game, i.e. the side which has filled <tt>
+	 * winLength</tt> squares in a row; <tt>MoveType.EMPTY</tt>, if no one
+	 * has won yet. It costs O(1), as wins are detected by <tt>setState</tt>.
+	 */
+	public MoveType findWinner() {
+		return (winner);
+	}
+	
+	/**
+	 * Returns the row of the first square of the winning run.
+	 */
+	public int getWinStartRow() {
+		return (winStartRow);
+	}
+	
+	/**
+	 * Returns the column of the first square of the winning run.
+	 */
+	public int getWinStartColumn() {
+		return (winStartColumn);
+	}
+	
+	/**
+	 * Returns the direction of the winning run; <tt>null</tt>, if no one has
+	 * won yet.
+	 */
+	public GameController.LineIdentifier getWinDirection() {
+		return (winDirection);
+	}
+	
+	/**
+	 * Returns the no. of squares held by player <b>O</b> on the line of the
+	 * given direction & index. The index of a row is its row, that of a
+	 * column is its column, that of a ULBR diagonal is <tt>column - row</tt>
+	 * and that of a URBL diagonal is <tt>row + column</tt>.
+	 */
+	public int getOFilled(GameController.LineIdentifier direction, int index) {
+		long counts = lines.get(pack(direction.ordinal(), index));
+		return ((counts == LongLongMap.ABSENT) ? 0 : highOf(counts));
+	}
+	
+	/**
+	 * Returns the no. of squares held by player <b>X</b> on the line of the
+	 * given direction & index.
+	 * 
+	 * @see #getOFilled(GameController.LineIdentifier, int)
+	 */
+	public int getXFilled(GameController.LineIdentifier direction, int index) {
+		long counts = lines.get(pack(direction.ordinal(), index));
+		return ((counts == LongLongMap.ABSENT) ? 0 : lowOf(counts));
+	}
+	
+	/**
+	 * Returns the no. of lines materialized by the moves made on this board.
+	 */
+	public int getMaterializedLines() {
+		return (lines.size());
+	}
+	
+	private void checkBounded() {
+		if(isUnbounded())
+			throw new UnsupportedOperationException("An unbounded board has infinitely many lines");
+	}
+	
+	public LineIterator rowIterator() {
+		return (rowIterator(0));
+	}
+	
+	public LineIterator rowIterator(int rowIndex) {
+		checkBounded();
+		return (new LineIterator(GameController.LineIdentifier.ROW, side, rowIndex));
+	}
+	
+	public LineIterator columnIterator() {
+		return (columnIterator(0));
+	}
+	
+	public LineIterator columnIterator(int columnIndex) {
+		checkBounded();
+		return (new LineIterator(GameController.LineIdentifier.COLUMN, side, columnIndex));
+	}
+	
+	/**
+	 * Instantiates a new <tt>SparseBoard.LineIterator</tt> on the two main
+	 * diagonals of this board, that starts from the diagonal <tt>
+	 * DIAGONAL_ULBR</tt> and ends at diagonal <tt>DIAGONAL_URBL</tt>.
+	 */
+	public LineIterator diagonalIterator() {
+		checkBounded();
+		return (new LineIterator(GameController.LineIdentifier.DIAGONAL_ULBR, 2, 0));
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.silcos.tictactoe;
 
+import org.silcos.tictactoe.player.ComputerPlayer;
+
 /**
  * Stores various settings that the user prefers to play with in
  * the game. A  <code>UserPreferences</code> object can be passed
@@ -31,15 +33,29 @@ public final class UserPreferences {
 	 */
 	private int boardSize;
 	
+	/**
+	 * The user's preferred no. of squares in a row needed to win; zero, if
+	 * a full line must be filled.
+	 */
+	private int winLength;
+	
 	/**
 	 * The side of the <code>HumanPlayer</code> while playing in
 	 * single-player mode.
 	 */
 	private MoveType defaultSide;
 	
+	/**
+	 * The level of the <code>ComputerPlayer</code> while playing in
+	 * single-player mode.
+	 */
+	private ComputerPlayer.Mode computerMode;
+	
 	private UserPreferences() {
 		this.boardSize = DEFAULT_BOARD;
+		this.winLength = 0;
 		this.defaultSide = MoveType.O;
+		this.computerMode = ComputerPlayer.Mode.MEDIUM;
 	}
 	
 	/**
@@ -50,6 +66,18 @@ public final class UserPreferences {
 		return (boardSize);
 	}
 	
+	/**
+	 * Returns the no. of squares in a row needed to win on the user's
+	 * preferred board. If not set, or if it is larger than the board size,
+	 * the board size will be returned, i.e. a full line must be filled.
+	 */
+	public int getWinLength() {
+		if(winLength == 0)
+			return (boardSize);
+		
+		return (Math.min(winLength, boardSize));
+	}
+	
 	/**
 	 * Returns the user's preferred side, in single player mode. If not
 	 * set, the default (MoveType.O) will be returned.
@@ -58,6 +86,14 @@ public final class UserPreferences {
 		return (defaultSide);
 	}
 	
+	/**
+	 * Returns the level of the computer player, in single player mode. If
+	 * not set, the default (Mode.MEDIUM) will be returned.
+	 */
+	public ComputerPlayer.Mode getComputerMode() {
+		return (computerMode);
+	}
+	
 	/**
 	 * Sets the user's preferred board size. The game controller supports
 	 * only odd sizes in the range [3, 11], and if the given size is out
@@ -75,6 +111,23 @@ public final class UserPreferences {
 		this.boardSize = boardSize;	
 	}
 	
+	/**
+	 * Sets the user's preferred no. of squares in a row needed to win, e.g.
+	 * 5 on an 11x11 board. It must be in the range [3, 11], or zero if a
+	 * full line must be filled; otherwise, an <code>
+	 * IllegalArgumentException</code> is thrown.
+	 * 
+	 * @param winLength - the win length of the user's preference
+	 */
+	public void setWinLength(int winLength) {
+		if(winLength != 0 && (winLength < 3 || winLength > 11))
+			throw new IllegalArgumentException(
+					"The win length can be any number between 3 and 11, or zero " +
+					"for a full line. The given settings cannot be enforced.");
+		
+		this.winLength = winLength;
+	}
+	
 	/**
 	 * Sets the preferred side of the user in single player mode. This must
 	 * be <code>MoveType.O</code> or <code>MoveType.X</code>, and
@@ -95,6 +148,19 @@ public final class UserPreferences {
 		this.defaultSide = defaultSide;
 	}
 	
+	/**
+	 * Sets the level of the computer player in single player mode.
+	 * 
+	 * @param computerMode - the level at which the <code>ComputerPlayer
+	 * 			</code> should play.
+	 */
+	public void setComputerMode(ComputerPlayer.Mode computerMode) {
+		if(computerMode == null)
+			throw new IllegalArgumentException("The computer mode must be specified");
+		
+		this.computerMode = computerMode;
+	}
+	
 	/**
 	 * Returns the default settings defined for the Tic-Tac-Toe
 	 * game. A sample game may also use this instead of loading the
@@ -0,0 +1,213 @@
+package org.silcos.tictactoe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Lists the <i>windows</i> of a board, i.e. the runs of <tt>winLength</tt>
+ * consecutive squares along a row, a column or any diagonal. A player wins
+ * by filling all squares of one window. When <tt>winLength</tt> is equal to
+ * the side of the board, the windows are the rows, the columns & the two
+ * main diagonals.
+ * 
+ * <p>
+ * Each window is identified by an index, and is described by its first
+ * square & its direction. The windows through each square are also listed,
+ * so that a move only needs to update the counters of the (at most
+ * <tt>4 * winLength</tt>) windows through it. The windows are ordered by
+ * direction: first those along rows, then columns, then the upper-left to
+ * bottom-right diagonals and last the upper-right to bottom-left ones.
+ * 
+ * <p>
+ * A <tt>WinningLines</tt> is immutable, and is shared by all boards of the
+ * same side & win length.
+ * 
+ * @author Shukant Pal
+ */
+public final class WinningLines {
+	
+	private static final Map<Integer, WinningLines> cache = new HashMap<Integer, WinningLines>();
+	
+	private final int side;
+	private final int winLength;
+	
+	private final int[] startRows;
+	private final int[] startColumns;
+	private final GameController.LineIdentifier[] directions;
+	
+	/**
+	 * The indices of the windows through each square, indexed by <tt>row *
+	 * side + column</tt>, and the offset of the square in each of them.
+	 */
+	private final int[][] cellWindows;
+	private final int[][] cellOffsets;
+	
+	private WinningLines(int side, int winLength) {
+		int runs = side - winLength + 1;
+		int windowCount = 2 * side * runs + 2 * runs * runs;
+		
+		this.side = side;
+		this.winLength = winLength;
+		this.startRows = new int[windowCount];
+		this.startColumns = new int[windowCount];
+		this.directions = new GameController.LineIdentifier[windowCount];
+		
+		int window = 0;
+		
+		for(int row = 0; row < side; row++) {
+			for(int column = 0; column < runs; column++)
+				describe(window++, row, column, GameController.LineIdentifier.ROW);
+		}
+		
+		for(int column = 0; column < side; column++) {
+			for(int row = 0; row < runs; row++)
+				describe(window++, row, column, GameController.LineIdentifier.COLUMN);
+		}
+		
+		for(int row = 0; row < runs; row++) {
+			for(int column = 0; column < runs; column++)
+				describe(window++, row, column, GameController.LineIdentifier.DIAGONAL_ULBR);
+		}
+		
+		for(int row = 0; row < runs; row++) {
+			for(int column = winLength - 1; column < side; column++)
+				describe(window++, row, column, GameController.LineIdentifier.DIAGONAL_URBL);
+		}
+		
+		int[] windowsPerCell = new int[side * side];
+		
+		for(window = 0; window < windowCount; window++) {
+			for(int offset = 0; offset < winLength; offset++)
+				++(windowsPerCell[cellOf(window, offset)]);
+		}
+		
+		cellWindows = new int[side * side][];
+		cellOffsets = new int[side * side][];
+		
+		for(int cell = 0; cell < side * side; cell++) {
+			cellWindows[cell] = new int[windowsPerCell[cell]];
+			cellOffsets[cell] = new int[windowsPerCell[cell]];
+			windowsPerCell[cell] = 0;
+		}
+		
+		for(window = 0; window < windowCount; window++) {
+			for(int offset = 0; offset < winLength; offset++) {
+				int cell = cellOf(window, offset);
+				
+				cellWindows[cell][windowsPerCell[cell]] = window;
+				cellOffsets[cell][windowsPerCell[cell]++] = offset;
+			}
+		}
+	}
+	
+	private void describe(int window, int row, int column, GameController.LineIdentifier direction) {
+		startRows[window] = row;
+		startColumns[window] = column;
+		directions[window] = direction;
+	}
+	
+	/**
+	 * Returns the <tt>WinningLines</tt> of a board of the given side, on
+	 * which <tt>winLength</tt> squares in a row win.
+	 * 
+	 * @param side - the side of the board
+	 * @param winLength - the no. of squares in a row needed to win, in
+	 * 				[1, side]
+	 */
+	public static WinningLines of(int side, int winLength) {
+		if(winLength < 1 || winLength > side)
+			throw new IllegalArgumentException("The win length must be in [1, " + side + "]");
+		
+		Integer key = side * 1024 + winLength;
+		
+		synchronized(cache) {
+			WinningLines lines = cache.get(key);
+			
+			if(lines == null) {
+				lines = new WinningLines(side, winLength);
+				cache.put(key, lines);
+			}
+			
+			return (lines);
+		}
+	}
+	
+	public int getSide() {
+		return (side);
+	}
+	
+	public int getWinLength() {
+		return (winLength);
+	}
+	
+	public int windowCount() {
+		return (startRows.length);
+	}
+	
+	public int getStartRow(int window) {
+		return (startRows[window]);
+	}
+	
+	public int getStartColumn(int window) {
+		return (startColumns[window]);
+	}
+	
+	public GameController.LineIdentifier getDirection(int window) {
+		return (directions[window]);
+	}
+	
+	/**
+	 * Returns the index (<tt>row * side + column</tt>) of the square at the
+	 * given offset from the start of a window.
+	 * 
+	 * @param window - the index of the window
+	 * @param offset - the position of the square in the window, in [0,
+	 * 				winLength)
+	 */
+	public int cellOf(int window, int offset) {
+		int row = startRows[window];
+		int column = startColumns[window];
+		
+		switch(directions[window]) {
+		case ROW:
+			column += offset;
+			break;
+		case COLUMN:
+			row += offset;
+			break;
+		case DIAGONAL_ULBR:
+			row += offset;
+			column += offset;
+			break;
+		default:
+			row += offset;
+			column -= offset;
+			break;
+		}
+		
+		return (row * side + column);
+	}
+	
+	/**
+	 * Returns the indices of the windows through the given square. The
+	 * returned array must not be modified.
+	 * 
+	 * @param cell - the index of the square, i.e. <tt>row * side + column</tt>
+	 */
+	public int[] windowsThrough(int cell) {
+		return (cellWindows[cell]);
+	}
+	
+	/**
+	 * Returns the offsets of the given square in the windows through it, in
+	 * the order of <tt>windowsThrough(cell)</tt>. The returned array must not
+	 * be modified.
+	 * 
+	 * @param cell - the index of the square, i.e. <tt>row * side + column</tt>
+	 */
+	public int[] offsetsThrough(int cell) {
+		return (cellOffsets[cell]);
+	}
+
+}
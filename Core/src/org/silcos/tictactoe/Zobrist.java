@@ -0,0 +1,90 @@
+package org.silcos.tictactoe;
+
+/**
+ * <p>
+ * Provides the random keys used to hash a position on a <tt>Board</tt>. Each
+ * square has one key for each non-empty <tt>MoveType</tt>, and the hash of a
+ * position is the XOR of the keys of all its filled squares. Hence, a move
+ * updates the hash with a single XOR, and taking it back restores the old
+ * hash with the same XOR.
+ * 
+ * <p>
+ * The keys are derived from a fixed seed, so that the hash of a position is
+ * the same across runs of the application. This allows hashes to be stored
+ * persistently, e.g. in an opening book.
+ * 
+ * @author Shukant Pal
+ */
+public final class Zobrist {
+	
+	/**
+	 * The no. of squares whose keys are precomputed; it covers an 11x11
+	 * board. The keys of other squares are derived on demand.
+	 */
+	private static final int TABLE_CELLS = 121;
+	
+	private static final long SEED = 0x5DEECE66DL;
+	
+	private static final long[] oKeys = new long[TABLE_CELLS];
+	private static final long[] xKeys = new long[TABLE_CELLS];
+	
+	static {
+		for(int cell = 0; cell < TABLE_CELLS; cell++) {
+			oKeys[cell] = deriveKey(MoveType.O, cell);
+			xKeys[cell] = deriveKey(MoveType.X, cell);
+		}
+	}
+	
+	private Zobrist() {
+	}
+	
+	/**
+	 * Mixes the given value using the <tt>SplitMix64</tt> finalizer, which
+	 * spreads each input bit over the whole output.
+	 */
+	static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return (value ^ (value >>> 31));
+	}
+	
+	private static long deriveKey(MoveType state, int cell) {
+		return (mix(SEED + 2L * cell + (state == MoveType.O ? 0 : 1)));
+	}
+	
+	/**
+	 * Returns the key of the given square when it is filled with <tt>state
+	 * </tt>. The key of an empty square is zero.
+	 * 
+	 * @param state - the state of the square
+	 * @param cell - the index of the square, i.e. <tt>row * side + column</tt>
+	 */
+	public static long keyOf(MoveType state, int cell) {
+		if(state == MoveType.EMPTY)
+			return (0L);
+		
+		if(cell < TABLE_CELLS)
+			return ((state == MoveType.O) ? oKeys[cell] : xKeys[cell]);
+		else
+			return (deriveKey(state, cell));
+	}
+	
+	/**
+	 * Returns the key of the square at <tt>(row, column)</tt> when it is
+	 * filled with <tt>state</tt>, on a board without bounds. The key is
+	 * derived by mixing both coordinates, so that it does not depend on the
+	 * side of the board.
+	 * 
+	 * @param state - the state of the square
+	 * @param row - the row of the square; it may be negative
+	 * @param column - the column of the square; it may be negative
+	 */
+	public static long keyAt(MoveType state, int row, int column) {
+		if(state == MoveType.EMPTY)
+			return (0L);
+		
+		long coordinates = ((long) row << 32) | (column & 0xFFFFFFFFL);
+		return (mix(mix(SEED ^ coordinates) + (state == MoveType.O ? 0 : 1)));
+	}
+
+}
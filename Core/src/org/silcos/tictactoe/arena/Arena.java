@@ -0,0 +1,433 @@
+package org.silcos.tictactoe.arena;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.silcos.tictactoe.MoveType;
+import org.silcos.tictactoe.player.BitBoard;
+import org.silcos.tictactoe.player.SearchEngine;
+
+/**
+ * <p>
+ * Plays games between <tt>Contestant</tt>s without a user interface or a
+ * <tt>GameController</tt>, to measure the strength & speed of the engines.
+ * Each ordered pair of contestants plays <tt>gamesPerPairing</tt> games,
+ * the first of them playing <b>O</b> (who moves first); hence, each pair
+ * meets with both colors.
+ * 
+ * <p>
+ * Games are played directly on a <tt>BitBoard</tt> by a fixed pool of
+ * threads, which take the next game from a shared counter. Each thread owns
+ * its engines, results and latency histograms, which are merged when all
+ * games are over, so that the threads share nothing while playing. Each
+ * game starts with <tt>openingPlies</tt> random moves, so that engines
+ * which always play the same move do not replay the same game.
+ * 
+ * <p>
+ * The report holds the games & moves played per second, the wins, draws &
+ * losses of each pairing with the Elo difference they imply, the Elo of
+ * each contestant from its score against the field, and the percentiles of
+ * the time taken by each contestant per move.
+ * 
+ * @author Shukant Pal
+ */
+public class Arena {
+	
+	/**
+	 * The Elo difference reported for a pairing in which one side scored
+	 * every point, for which the difference is unbounded.
+	 */
+	private static final double MAX_ELO = 999;
+	
+	private final List<Contestant> contestants;
+	private final int side;
+	private final int winLength;
+	private final int gamesPerPairing;
+	private final int openingPlies;
+	private final int threads;
+	
+	/**
+	 * The games won, drawn & lost by the <b>O</b> contestant (first index)
+	 * against the <b>X</b> contestant (second index).
+	 */
+	private final long[][] wins;
+	private final long[][] draws;
+	private final long[][] losses;
+	private final LatencyHistogram[] latencies;
+	
+	private long games;
+	private long moves;
+	private long elapsedNanos;
+	
+	/**
+	 * Instantiates an <tt>Arena</tt>.
+	 * 
+	 * @param contestants - the contestants, at least two
+	 * @param side - the side of the board
+	 * @param winLength - the no. of squares in a row needed to win
+	 * @param gamesPerPairing - the no. of games of each ordered pair
+	 * @param openingPlies - the no. of random moves starting each game
+	 * @param threads - the no. of threads playing games
+	 */
+	public Arena(List<Contestant> contestants, int side, int winLength, int gamesPerPairing,
+			int openingPlies, int threads) {
+		if(contestants.size() < 2)
+			throw new IllegalArgumentException("At least two contestants are needed");
+		if(gamesPerPairing < 1 || threads < 1)
+			throw new IllegalArgumentException("The no. of games & threads must be positive");
+		if(openingPlies < 0 || openingPlies >= side * side)
+			throw new IllegalArgumentException("The opening plies must be in [0, " + (side * side) + ")");
+		
+		new BitBoard(side, winLength);/* Validates the board size */
+		
+		int count = contestants.size();
+		
+		this.contestants = new ArrayList<Contestant>(contestants);
+		this.side = side;
+		this.winLength = winLength;
+		this.gamesPerPairing = gamesPerPairing;
+		this.openingPlies = openingPlies;
+		this.threads = threads;
+		this.wins = new long[count][count];
+		this.draws = new long[count][count];
+		this.losses = new long[count][count];
+		this.latencies = new LatencyHistogram[count];
+		
+		for(int idx = 0; idx < count; idx++)
+			latencies[idx] = new LatencyHistogram();
+	}
+	
+	/**
+	 * The games played by one thread, and their results.
+	 */
+	private class Worker implements Callable<Void> {
+		
+		private final AtomicLong nextGame;
+		private final long totalGames;
+		private final SearchEngine[] engines = new SearchEngine[contestants.size()];
+		private final long[][] wins = new long[contestants.size()][contestants.size()];
+		private final long[][] draws = new long[contestants.size()][contestants.size()];
+		private final long[][] losses = new long[contestants.size()][contestants.size()];
+		private final LatencyHistogram[] latencies = new LatencyHistogram[contestants.size()];
+		private final int[] emptyCells = new int[side * side];
+		private long moves;
+		
+		Worker(AtomicLong nextGame, long totalGames) {
+			this.nextGame = nextGame;
+			this.totalGames = totalGames;
+			
+			for(int idx = 0; idx < latencies.length; idx++)
+				latencies[idx] = new LatencyHistogram();
+		}
+		
+		private SearchEngine engineOf(int contestant) {
+			if(engines[contestant] == null)
+				engines[contestant] = contestants.get(contestant).newEngine();
+			
+			return (engines[contestant]);
+		}
+		
+		@Override
+		public Void call() {
+			int count = contestants.size();
+			
+			for(long game = nextGame.getAndIncrement(); game < totalGames; game = nextGame.getAndIncrement()) {
+				int pairing = (int) (game / gamesPerPairing);
+				int first = pairing / (count - 1);
+				int second = pairing % (count - 1);
+				
+				if(second >= first)
+					++(second);
+				
+				MoveType winner = play(first, second);
+				
+				if(winner == MoveType.O)
+					++(wins[first][second]);
+				else if(winner == MoveType.X)
+					++(losses[first][second]);
+				else
+					++(draws[first][second]);
+			}
+			
+			for(SearchEngine engine : engines) {
+				if(engine != null)
+					engine.shutdown();
+			}
+			
+			return (null);
+		}
+		
+		/**
+		 * Plays one game in which <tt>first</tt> plays <b>O</b>, and returns
+		 * the winner. A contestant returning an illegal move loses.
+		 */
+		private MoveType play(int first, int second) {
+			BitBoard position = new BitBoard(side, winLength);
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			
+			for(int ply = 0; ply < openingPlies; ply++) {
+				int count = position.getEmptyCells(emptyCells);
+				int cell = emptyCells[random.nextInt(count)];
+				
+				position.play(cell);
+				
+				if(position.isWinningMove(cell))
+					return (position.getState(cell));
+			}
+			
+			while(!position.isFull()) {
+				MoveType mover = position.getNextState();
+				int contestant = (mover == MoveType.O) ? first : second;
+				SearchEngine engine = engineOf(contestant);
+				
+				long start = System.nanoTime();
+				int cell = engine.search(position, contestants.get(contestant).getMoveTime());
+				latencies[contestant].record(System.nanoTime() - start);
+				++(moves);
+				
+				if(cell < 0 || cell >= position.getArea() || !position.isEmpty(cell)) {
+					System.err.println("Warning *:* " + contestants.get(contestant).getName()
+							+ " played the illegal move " + cell);
+					return ((mover == MoveType.O) ? MoveType.X : MoveType.O);
+				}
+				
+				position.play(cell);
+				
+				if(position.isWinningMove(cell))
+					return (mover);
+			}
+			
+			return (MoveType.EMPTY);
+		}
+	
+	}
+	
+	/**
+	 * Plays all games, adding their results to those of earlier runs.
+	 * 
+	 * @throws InterruptedException - if interrupted while waiting for games
+	 */
+	public void run() throws InterruptedException {
+		int count = contestants.size();
+		long totalGames = (long) count * (count - 1) * gamesPerPairing;
+		AtomicLong nextGame = new AtomicLong();
+		List<Worker> workers = new ArrayList<Worker>();
+		ExecutorService pool = Executors.newFixedThreadPool(threads, (Runnable task) -> {
+			Thread thread = new Thread(task, "Arena-worker");
+			thread.setDaemon(true);
+			return (thread);
+		});
+		
+		for(int idx = 0; idx < threads; idx++)
+			workers.add(new Worker(nextGame, totalGames));
+		
+		long start = System.nanoTime();
+		
+		try {
+			for(Future<Void> future : pool.invokeAll(workers))
+				future.get();
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("An arena game failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		
+		elapsedNanos += System.nanoTime() - start;
+		games += totalGames;
+		
+		for(Worker worker : workers) {
+			moves += worker.moves;
+			
+			for(int first = 0; first < count; first++) {
+				latencies[first].add(worker.latencies[first]);
+				
+				for(int second = 0; second < count; second++) {
+					wins[first][second] += worker.wins[first][second];
+					draws[first][second] += worker.draws[first][second];
+					losses[first][second] += worker.losses[first][second];
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the points (1 per win, 0.5 per draw) scored by <tt>first</tt>
+	 * against <tt>second</tt>, with both colors, and the no. of games they
+	 * played in the second element.
+	 */
+	private double[] scoreOf(int first, int second) {
+		double points = wins[first][second] + losses[second][first]
+				+ 0.5 * (draws[first][second] + draws[second][first]);
+		double played = wins[first][second] + draws[first][second] + losses[first][second]
+				+ wins[second][first] + draws[second][first] + losses[second][first];
+		
+		return (new double[] { points, played });
+	}
+	
+	/**
+	 * Returns the Elo difference implied by scoring <tt>points</tt> in <tt>
+	 * played</tt> games.
+	 */
+	private static double eloOf(double points, double played) {
+		if(played == 0)
+			return (0);
+		
+		double score = points / played;
+		
+		if(score <= 0)
+			return (-MAX_ELO);
+		if(score >= 1)
+			return (MAX_ELO);
+		
+		return (-400 * Math.log10(1 / score - 1));
+	}
+	
+	/**
+	 * Returns the Elo difference of <tt>first</tt> over <tt>second</tt>,
+	 * from their games with both colors.
+	 */
+	public double getEloDifference(int first, int second) {
+		double[] score = scoreOf(first, second);
+		return (eloOf(score[0], score[1]));
+	}
+	
+	/**
+	 * Returns the Elo of the contestant relative to the average of the
+	 * others, from its score against all of them.
+	 */
+	public double getElo(int contestant) {
+		double points = 0;
+		double played = 0;
+		
+		for(int other = 0; other < contestants.size(); other++) {
+			if(other != contestant) {
+				double[] score = scoreOf(contestant, other);
+				
+				points += score[0];
+				played += score[1];
+			}
+		}
+		
+		return (eloOf(points, played));
+	}
+	
+	public long getGames() {
+		return (games);
+	}
+	
+	public long getMoves() {
+		return (moves);
+	}
+	
+	public double getGamesPerSecond() {
+		return (games * 1e9 / Math.max(elapsedNanos, 1));
+	}
+	
+	public double getMovesPerSecond() {
+		return (moves * 1e9 / Math.max(elapsedNanos, 1));
+	}
+	
+	/**
+	 * Prints the results of all games played so far.
+	 */
+	public void report(PrintStream out) {
+		int count = contestants.size();
+		
+		out.printf("%d games, %d moves on %dx%d (win length %d) in %.2f s using %d threads%n",
+				games, moves, side, side, winLength, elapsedNanos / 1e9, threads);
+		out.printf("%.1f games/s, %.1f moves/s%n%n", getGamesPerSecond(), getMovesPerSecond());
+		
+		out.println("Wins/draws/losses of O (row) against X (column):");
+		out.printf("%-12s", "");
+		
+		for(Contestant contestant : contestants)
+			out.printf("%20s", contestant.getName());
+		
+		out.println();
+		
+		for(int first = 0; first < count; first++) {
+			out.printf("%-12s", contestants.get(first).getName());
+			
+			for(int second = 0; second < count; second++) {
+				if(first == second)
+					out.printf("%20s", "-");
+				else
+					out.printf("%20s", wins[first][second] + "/" + draws[first][second] + "/"
+							+ losses[first][second]);
+			}
+			
+			out.println();
+		}
+		
+		out.println();
+		out.println("Elo difference of the row over the column, with both colors:");
+		out.printf("%-12s", "");
+		
+		for(Contestant contestant : contestants)
+			out.printf("%12s", contestant.getName());
+		
+		out.println();
+		
+		for(int first = 0; first < count; first++) {
+			out.printf("%-12s", contestants.get(first).getName());
+			
+			for(int second = 0; second < count; second++) {
+				if(first == second)
+					out.printf("%12s", "-");
+				else
+					out.printf("%12.0f", getEloDifference(first, second));
+			}
+			
+			out.println();
+		}
+		
+		out.println();
+		out.println("contestant\telo\tmoves\tp50 us\tp90 us\tp99 us\tmax us");
+		
+		for(int idx = 0; idx < count; idx++) {
+			LatencyHistogram histogram = latencies[idx];
+			
+			out.printf("%s\t%.0f\t%d\t%d\t%d\t%d\t%d%n", contestants.get(idx).getName(), getElo(idx),
+					histogram.getCount(), histogram.getPercentile(0.5) / 1000,
+					histogram.getPercentile(0.9) / 1000, histogram.getPercentile(0.99) / 1000,
+					histogram.getMax() / 1000);
+		}
+	}
+	
+	/**
+	 * Runs an arena from the command line.
+	 * 
+	 * @param args - the side, the win length, the games per pairing, the
+	 * 			move time in milliseconds, the comma-separated contestants
+	 * 			(see <tt>Contestant.named</tt>) and the no. of threads; 5, 4,
+	 * 			1000, 5, <tt>random,rules,alphabeta,mcts,hard</tt> & the no. of
+	 * 			processors by default
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int side = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+		int winLength = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+		int gamesPerPairing = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+		long moveTime = (args.length > 3) ? Long.parseLong(args[3]) : 5;
+		String names = (args.length > 4) ? args[4] : "random,rules,alphabeta,mcts,hard";
+		int threads = (args.length > 5) ? Integer.parseInt(args[5])
+				: Runtime.getRuntime().availableProcessors();
+		List<Contestant> contestants = new ArrayList<Contestant>();
+		
+		for(String name : names.split(","))
+			contestants.add(Contestant.named(name.trim(), moveTime));
+		
+		Arena arena = new Arena(contestants, side, winLength, gamesPerPairing, 2, threads);
+		
+		arena.run();
+		arena.report(System.out);
+	}
+
+}
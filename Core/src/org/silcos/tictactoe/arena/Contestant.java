@@ -0,0 +1,95 @@
+package org.silcos.tictactoe.arena;
+
+import java.util.function.Supplier;
+
+import org.silcos.tictactoe.player.AlphaBetaEngine;
+import org.silcos.tictactoe.player.HardModeEngine;
+import org.silcos.tictactoe.player.MonteCarloEngine;
+import org.silcos.tictactoe.player.SearchEngine;
+import org.silcos.tictactoe.player.TranspositionTable;
+
+/**
+ * Describes a player of an <tt>Arena</tt>: a name, a factory of its <tt>
+ * SearchEngine</tt> and the time given to it for each move. Engines keep
+ * state between searches and are not thread-safe, so each thread of the
+ * arena creates its own engine for each contestant.
+ * 
+ * @author Shukant Pal
+ */
+public final class Contestant {
+	
+	/**
+	 * The capacity of the trees of the Monte Carlo contestants, kept small as
+	 * each arena thread holds one.
+	 */
+	private static final int MONTE_CARLO_CAPACITY = 1 << 16;
+	
+	private final String name;
+	private final Supplier<SearchEngine> engineFactory;
+	private final long moveTime;
+	
+	/**
+	 * Instantiates a <tt>Contestant</tt>.
+	 * 
+	 * @param name - the name shown in the reports
+	 * @param engineFactory - creates a new engine for each arena thread
+	 * @param moveTime - the time given to each search, in milliseconds
+	 */
+	public Contestant(String name, Supplier<SearchEngine> engineFactory, long moveTime) {
+		if(moveTime < 0)
+			throw new IllegalArgumentException("The move time cannot be negative");
+		
+		this.name = name;
+		this.engineFactory = engineFactory;
+		this.moveTime = moveTime;
+	}
+	
+	/**
+	 * Returns the contestant of the given name, which is one of:
+	 * <ul>
+	 * 		<li> <tt>random</tt>: a <tt>RandomEngine</tt>, like <tt>Mode.EASY
+	 * 			</tt>
+	 * 		<li> <tt>rules</tt>: a <tt>RuleEngine</tt>, like <tt>Mode.MEDIUM
+	 * 			</tt>
+	 * 		<li> <tt>alphabeta</tt>: an <tt>AlphaBetaEngine</tt> with a table
+	 * 			of the default size
+	 * 		<li> <tt>mcts</tt>: a <tt>MonteCarloEngine</tt>
+	 * 		<li> <tt>hard</tt>: a <tt>HardModeEngine</tt>, which plays the
+	 * 			moves of <tt>Mode.HARD</tt> (tables, opening book & the engine
+	 * 			chosen for the board size)
+	 * </ul>
+	 * 
+	 * @param name - the name of the contestant
+	 * @param moveTime - the time given to each search, in milliseconds
+	 */
+	public static Contestant named(String name, long moveTime) {
+		switch(name) {
+		case "random":
+			return (new Contestant(name, RandomEngine::new, moveTime));
+		case "rules":
+			return (new Contestant(name, RuleEngine::new, moveTime));
+		case "alphabeta":
+			return (new Contestant(name, () -> new AlphaBetaEngine(new TranspositionTable()), moveTime));
+		case "mcts":
+			return (new Contestant(name, () -> new MonteCarloEngine(MONTE_CARLO_CAPACITY, 0), moveTime));
+		case "hard":
+			return (new Contestant(name, HardModeEngine::new, moveTime));
+		default:
+			throw new IllegalArgumentException("Unknown contestant " + name
+					+ "; expected random, rules, alphabeta, mcts or hard");
+		}
+	}
+	
+	public String getName() {
+		return (name);
+	}
+	
+	public long getMoveTime() {
+		return (moveTime);
+	}
+	
+	SearchEngine newEngine() {
+		return (engineFactory.get());
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.silcos.tictactoe.arena;
+
+/**
+ * Counts latencies in buckets of logarithmic width, so that percentiles of
+ * millions of samples can be read without storing them. Each power of two
+ * is split into <tt>SUB_BUCKETS</tt> buckets, bounding the relative error of
+ * a percentile by <tt>1 / SUB_BUCKETS</tt>. A histogram is not thread-safe;
+ * each thread should record into its own and <tt>add</tt> them at the end.
+ * 
+ * @author Shukant Pal
+ */
+final class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	private final long[] counts = new long[64 * SUB_BUCKETS];
+	private long total;
+	private long max;
+	
+	private static int bucketOf(long nanos) {
+		if(nanos < SUB_BUCKETS)
+			return ((int) Math.max(nanos, 0));
+		
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		
+		return ((exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket);
+	}
+	
+	/**
+	 * Returns the largest latency counted in the given bucket.
+	 */
+	private static long upperBoundOf(int bucket) {
+		if(bucket < SUB_BUCKETS)
+			return (bucket);
+		
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket % SUB_BUCKETS;
+		
+		return (((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1);
+	}
+	
+	void record(long nanos) {
+		++(counts[bucketOf(nanos)]);
+		++(total);
+		max = Math.max(max, nanos);
+	}
+	
+	void add(LatencyHistogram other) {
+		for(int bucket = 0; bucket < counts.length; bucket++)
+			counts[bucket] += other.counts[bucket];
+		
+		total += other.total;
+		max = Math.max(max, other.max);
+	}
+	
+	long getCount() {
+		return (total);
+	}
+	
+	long getMax() {
+		return (max);
+	}
+	
+	/**
+	 * Returns the latency below which the given fraction of the samples lie,
+	 * in nanoseconds.
+	 * 
+	 * @param fraction - the percentile as a fraction, in [0, 1]
+	 */
+	long getPercentile(double fraction) {
+		long rank = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		
+		for(int bucket = 0; bucket < counts.length; bucket++) {
+			seen += counts[bucket];
+			
+			if(seen >= rank && seen > 0)
+				return (Math.min(upperBoundOf(bucket), max));
+		}
+		
+		return (max);
+	}
+
+}
@@ -0,0 +1,32 @@
+package org.silcos.tictactoe.arena;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.silcos.tictactoe.player.BitBoard;
+import org.silcos.tictactoe.player.SearchEngine;
+
+/**
+ * Plays a uniformly random empty square, like a <tt>ComputerPlayer</tt> in
+ * <tt>Mode.EASY</tt>. It serves as the weakest baseline of an <tt>Arena
+ * </tt>.
+ * 
+ * @author Shukant Pal
+ */
+public final class RandomEngine implements SearchEngine {
+	
+	private int[] emptyCells = new int[0];
+	
+	@Override
+	public int search(BitBoard root, long timeBudget) {
+		if(emptyCells.length < root.getArea())
+			emptyCells = new int[root.getArea()];
+		
+		int count = root.getEmptyCells(emptyCells);
+		
+		if(count == 0)
+			return (-1);
+		
+		return (emptyCells[ThreadLocalRandom.current().nextInt(count)]);
+	}
+
+}
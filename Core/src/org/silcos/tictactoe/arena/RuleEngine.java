@@ -0,0 +1,79 @@
+package org.silcos.tictactoe.arena;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.silcos.tictactoe.MoveType;
+import org.silcos.tictactoe.player.BitBoard;
+import org.silcos.tictactoe.player.SearchEngine;
+
+/**
+ * Plays like a <tt>ComputerPlayer</tt> in <tt>Mode.MEDIUM</tt>: it wins
+ * when it can, otherwise it blocks a win of the opponent, otherwise it
+ * plays a random empty square. Wins & blocks are found by trying each
+ * empty square on the position.
+ * 
+ * @author Shukant Pal
+ */
+public final class RuleEngine implements SearchEngine {
+	
+	private int[] emptyCells = new int[0];
+	private BitBoard scratch;
+	
+	@Override
+	public int search(BitBoard root, long timeBudget) {
+		if(emptyCells.length < root.getArea())
+			emptyCells = new int[root.getArea()];
+		
+		int count = root.getEmptyCells(emptyCells);
+		
+		if(count == 0)
+			return (-1);
+		
+		if(scratch == null || scratch.getSide() != root.getSide()
+				|| scratch.getWinLength() != root.getWinLength())
+			scratch = new BitBoard(root);
+		else
+			scratch.copyFrom(root);
+		
+		MoveType mover = root.getNextState();
+		MoveType opponent = (mover == MoveType.O) ? MoveType.X : MoveType.O;
+		int win = winningCell(mover, count);
+		
+		if(win >= 0)
+			return (win);
+		
+		int block = winningCell(opponent, count);
+		
+		if(block >= 0)
+			return (block);
+		
+		return (emptyCells[ThreadLocalRandom.current().nextInt(count)]);
+	}
+	
+	/**
+	 * Returns an empty square on which <tt>side</tt> would win at once; -1,
+	 * if there is none.
+	 */
+	private int winningCell(MoveType side, int count) {
+		MoveType nextState = scratch.getNextState();
+		
+		scratch.setNextState(side);
+		
+		for(int idx = 0; idx < count; idx++) {
+			int cell = emptyCells[idx];
+			
+			scratch.play(cell);
+			boolean won = scratch.isWinningMove(cell);
+			scratch.undo(cell);
+			
+			if(won) {
+				scratch.setNextState(nextState);
+				return (cell);
+			}
+		}
+		
+		scratch.setNextState(nextState);
+		return (-1);
+	}
+
+}
@@ -0,0 +1,492 @@
+package org.silcos.tictactoe.player;
+
+import java.util.Arrays;
+
+import org.silcos.tictactoe.MoveType;
+
+/**
+ * <p>
+ * Searches a <tt>BitBoard</tt> position for the best move using negamax
+ * with alpha-beta pruning. The search is iteratively deepened, so that the
+ * best move of the last completed depth is available when the deadline
+ * passes, and each depth uses principal-variation search: the first move is
+ * searched with the full window, while the others are searched with a null
+ * window and only re-searched when they turn out better.
+ * 
+ * <p>
+ * The results are cached in a <tt>TranspositionTable</tt>, whose best moves
+ * are searched first; the other moves are ranked by a <tt>MoveOrdering</tt>.
+ * Hence, the table also carries the principal variation
+ * from one depth to the next, and from one move of the game to the next.
+ * Positions are cached under their canonical form (see <tt>Symmetry</tt>),
+ * so that a result found for one position serves all its symmetric
+ * equivalents; the cached moves are mapped to & from the canonical form.
+ * Moves at the root which lead to symmetric positions are searched only
+ * once.
+ * 
+ * <p>
+ * Scores are relative to the side to move. A won position scores <tt>
+ * WIN_SCORE</tt> minus the no. of plies to the win, so that faster wins are
+ * preferred. Positions at the depth limit are evaluated by counting the
+ * squares each side holds on lines the other side has not entered.
+ * 
+ * @author Shukant Pal
+ */
+public class AlphaBetaEngine implements SearchEngine {
+	
+	/**
+	 * The score of a position won on the board.
+	 */
+	public static final int WIN_SCORE = 1 << 28;
+	
+	/**
+	 * The maximum no. of plies searched below the root.
+	 */
+	public static final int MAX_PLY = 128;
+	
+	/**
+	 * Scores beyond this magnitude denote a forced win or loss.
+	 */
+	static final int WIN_THRESHOLD = WIN_SCORE - MAX_PLY;
+	
+	private static final int INFINITY = WIN_SCORE + 1;
+	
+	/**
+	 * The no. of nodes searched between two checks of the deadline.
+	 */
+	private static final int DEADLINE_CHECK_INTERVAL = 1024;
+	
+	/**
+	 * The value of holding <tt>n</tt> squares on a line the opponent has
+	 * not entered, indexed by <tt>n</tt>.
+	 */
+	private static final int[] lineWeights = new int[BitBoard.MAX_SIDE + 1];
+	
+	static {
+		for(int held = 1; held <= BitBoard.MAX_SIDE; held++) {
+			lineWeights[held] = 1 << (2 * (held - 1));
+		}
+	}
+	
+	private final TranspositionTable table;
+	
+	private BitBoard position;
+	private int[][] moveBuffers;
+	private int[] centerOrder;
+	private int[][] symmetryMaps;
+	private MoveOrdering ordering;
+	private boolean orderingEnabled = true;
+	
+	/**
+	 * The symmetries (other than the identity) under which the root is its
+	 * own image, and their no.
+	 */
+	private final int[] rootSymmetries = new int[Symmetry.COUNT];
+	private int rootSymmetryCount;
+	
+	private long deadline;
+	private boolean aborted;
+	private long nodes;
+	private long cutoffs;
+	private long firstMoveCutoffs;
+	private int maxDepth = MAX_PLY;
+	
+	/**
+	 * Set by another thread to stop the current search. It is not cleared
+	 * by <tt>search</tt>, so that a stop requested before the search starts
+	 * is not lost.
+	 */
+	volatile boolean stopRequested;
+	
+	private int rootBestMove;
+	private int completedDepth;
+	private int bestScore;
+	
+	/**
+	 * Instantiates an <tt>AlphaBetaEngine</tt> that caches its results in
+	 * the given table.
+	 * 
+	 * @param table - the transposition table to be used by the search
+	 */
+	public AlphaBetaEngine(TranspositionTable table) {
+		this.table = table;
+	}
+	
+	private void prepare(BitBoard root) {
+		if(position == null || position.masks != root.masks) {
+			int side = root.getSide();
+			
+			position = new BitBoard(root);
+			moveBuffers = new int[MAX_PLY + 1][root.getArea()];
+			centerOrder = centerOrder(side);
+			symmetryMaps = Symmetry.mapsFor(side);
+			ordering = new MoveOrdering(root.masks);
+		} else {
+			position.copyFrom(root);
+		}
+		
+		rootSymmetryCount = 0;
+		
+		for(int transform = 1; transform < Symmetry.COUNT; transform++) {
+			if(position.isSymmetricUnder(transform))
+				rootSymmetries[rootSymmetryCount++] = transform;
+		}
+	}
+	
+	/**
+	 * Returns the squares of a board of given side, sorted by their distance
+	 * from the center. Central squares lie on more lines, and hence, are
+	 * more likely to be good moves.
+	 */
+	private static int[] centerOrder(int side) {
+		Integer[] cells = new Integer[side * side];
+		int[] order = new int[side * side];
+		
+		for(int cell = 0; cell < cells.length; cell++) {
+			cells[cell] = cell;
+		}
+		
+		Arrays.sort(cells, (Integer first, Integer second) -> {
+			return (Integer.compare(distance(first, side), distance(second, side)));
+		});
+		
+		for(int idx = 0; idx < order.length; idx++) {
+			order[idx] = cells[idx];
+		}
+		
+		return (order);
+	}
+	
+	private static int distance(int cell, int side) {
+		int rowDist = Math.abs(2 * (cell / side) - (side - 1));
+		int colDist = Math.abs(2 * (cell % side) - (side - 1));
+		
+		return (Math.max(rowDist, colDist) * 4 + Math.min(rowDist, colDist));
+	}
+	
+	/**
+	 * Searches the given position until the deadline passes or the value of
+	 * the position is proven, and returns the best move found.
+	 * 
+	 * @param root - the position to be searched; it is not modified
+	 * @param timeBudget - the time given to the search, in milliseconds
+	 * @return - the index of the best move; -1, if the position has no empty
+	 * 			squares.
+	 */
+	@Override
+	public int search(BitBoard root, long timeBudget) {
+		return (search(root, timeBudget, 1));
+	}
+	
+	/**
+	 * Searches the given position like <tt>search(root, timeBudget)</tt>, but
+	 * starts the iterative deepening at <tt>firstDepth</tt>. Helper threads
+	 * of a <tt>LazySmpEngine</tt> start at staggered depths.
+	 */
+	int search(BitBoard root, long timeBudget, int firstDepth) {
+		prepare(root);
+		
+		deadline = System.nanoTime() + timeBudget * 1000000L;
+		aborted = false;
+		nodes = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		completedDepth = 0;
+		bestScore = 0;
+		ordering.age();
+		
+		if(position.getEmptyArea() == 0)
+			return (-1);
+		
+		int bestMove = centerOrderFirstEmpty();
+		int lastDepth = Math.min(position.getEmptyArea(), maxDepth);
+		
+		for(int depth = Math.min(firstDepth, lastDepth); depth <= lastDepth; depth++) {
+			int score = negamax(depth, -INFINITY, INFINITY, 0);
+			
+			if(aborted)
+				break;
+			
+			bestMove = rootBestMove;
+			bestScore = score;
+			completedDepth = depth;
+			
+			if(Math.abs(score) >= WIN_THRESHOLD)
+				break;
+		}
+		
+		return (bestMove);
+	}
+	
+	private int centerOrderFirstEmpty() {
+		for(int cell : centerOrder) {
+			if(position.isEmpty(cell))
+				return (cell);
+		}
+		
+		return (-1);
+	}
+	
+	/**
+	 * Generates the empty squares of the current position into the buffer
+	 * of the given ply, with <tt>firstMove</tt> first and the others by
+	 * their distance from the center. At the root, moves symmetric to an
+	 * earlier move are left out.
+	 */
+	private int generateMoves(int ply, int firstMove) {
+		int[] buffer = moveBuffers[ply];
+		int count = 0;
+		
+		if(firstMove >= 0 && position.isEmpty(firstMove))
+			buffer[count++] = firstMove;
+		
+		for(int cell : centerOrder) {
+			if(cell != firstMove && position.isEmpty(cell)
+					&& (ply > 0 || !isSymmetricToEarlier(cell, buffer, count)))
+				buffer[count++] = cell;
+		}
+		
+		return (count);
+	}
+	
+	/**
+	 * Returns whether a symmetry of the root maps the given move onto one
+	 * of the first <tt>count</tt> moves in <tt>moves</tt>.
+	 */
+	private boolean isSymmetricToEarlier(int move, int[] moves, int count) {
+		for(int idx = 0; idx < rootSymmetryCount; idx++) {
+			int image = symmetryMaps[rootSymmetries[idx]][move];
+			
+			for(int earlier = 0; earlier < count; earlier++) {
+				if(moves[earlier] == image)
+					return (true);
+			}
+		}
+		
+		return (false);
+	}
+	
+	private int negamax(int depth, int alpha, int beta, int ply) {
+		if((++(nodes) % DEADLINE_CHECK_INTERVAL) == 0
+				&& (stopRequested || System.nanoTime() > deadline)) {
+			aborted = true;
+			return (0);
+		}
+		
+		int originalAlpha = alpha;
+		int transform = position.getCanonicalTransform();
+		long key = position.getSymmetricHash(transform);
+		long entry = table.probe(key);
+		int tableMove = TranspositionTable.NO_MOVE;
+		
+		if(entry != TranspositionTable.NO_ENTRY) {
+			tableMove = TranspositionTable.moveOf(entry);
+			
+			if(tableMove != TranspositionTable.NO_MOVE)
+				tableMove = symmetryMaps[Symmetry.inverse(transform)][tableMove];
+			
+			if(ply > 0 && TranspositionTable.depthOf(entry) >= depth) {
+				int score = fromTable(TranspositionTable.scoreOf(entry), ply);
+				
+				switch(TranspositionTable.boundOf(entry)) {
+				case EXACT:
+					return (score);
+				case LOWER:
+					alpha = Math.max(alpha, score);
+					break;
+				case UPPER:
+					beta = Math.min(beta, score);
+					break;
+				}
+				
+				if(alpha >= beta)
+					return (score);
+			}
+		}
+		
+		if(position.isFull())
+			return (0);
+		
+		if(depth == 0)
+			return (evaluate());
+		
+		int[] moves = moveBuffers[ply];
+		int moveCount = generateMoves(ply, tableMove);
+		int best = -INFINITY;
+		int bestMove = moves[0];
+		
+		if(orderingEnabled)
+			ordering.rank(position, moves, moveCount, ply, tableMove);
+		
+		for(int idx = 0; idx < moveCount; idx++) {
+			int move = orderingEnabled ? ordering.selectNext(moves, idx, moveCount, ply) : moves[idx];
+			int score;
+			
+			position.play(move);
+			
+			if(position.isWinningMove(move)) {
+				score = WIN_SCORE - (ply + 1);
+			} else if(idx == 0) {
+				score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+			} else {
+				score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1);
+				
+				if(score > alpha && score < beta)
+					score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+			}
+			
+			position.undo(move);
+			
+			if(aborted)
+				return (0);
+			
+			if(score > best) {
+				best = score;
+				bestMove = move;
+			}
+			
+			if(score > alpha)
+				alpha = score;
+			
+			if(alpha >= beta) {
+				++(cutoffs);
+				
+				if(idx == 0)
+					++(firstMoveCutoffs);
+				if(orderingEnabled)
+					ordering.recordCutoff(move, ply, depth);
+				
+				break;
+			}
+		}
+		
+		TranspositionTable.Bound bound;
+		
+		if(best <= originalAlpha)
+			bound = TranspositionTable.Bound.UPPER;
+		else if(best >= beta)
+			bound = TranspositionTable.Bound.LOWER;
+		else
+			bound = TranspositionTable.Bound.EXACT;
+		
+		table.store(key, depth, bound, toTable(best, ply), symmetryMaps[transform][bestMove]);
+		
+		if(ply == 0)
+			rootBestMove = bestMove;
+		
+		return (best);
+	}
+	
+	/**
+	 * Converts a win score relative to the root into one relative to the
+	 * current node, so that it stays valid when the node is reached at a
+	 * different ply.
+	 */
+	private static int toTable(int score, int ply) {
+		if(score >= WIN_THRESHOLD)
+			return (score + ply);
+		else if(score <= -WIN_THRESHOLD)
+			return (score - ply);
+		else
+			return (score);
+	}
+	
+	private static int fromTable(int score, int ply) {
+		if(score >= WIN_THRESHOLD)
+			return (score - ply);
+		else if(score <= -WIN_THRESHOLD)
+			return (score + ply);
+		else
+			return (score);
+	}
+	
+	/**
+	 * Evaluates the current position for the side to move. Each line held
+	 * by only one side is worth <tt>lineWeights[n]</tt> to that side, where
+	 * <tt>n</tt> is the no. of squares it holds on that line.
+	 */
+	private int evaluate() {
+		BitBoard.LineMasks masks = position.masks;
+		int score = 0;
+		
+		for(int line = 0; line < masks.lineCount(); line++) {
+			long lineLow = masks.lineLow[line];
+			long lineHigh = masks.lineHigh[line];
+			
+			int oHeld = Long.bitCount(position.oLow & lineLow) + Long.bitCount(position.oHigh & lineHigh);
+			int xHeld = Long.bitCount(position.xLow & lineLow) + Long.bitCount(position.xHigh & lineHigh);
+			
+			if(xHeld == 0)
+				score += lineWeights[oHeld];
+			else if(oHeld == 0)
+				score -= lineWeights[xHeld];
+		}
+		
+		return ((position.getNextState() == MoveType.O) ? score : -score);
+	}
+	
+	/**
+	 * Limits the depth of the following searches, e.g. to measure the time
+	 * taken to reach a given depth.
+	 * 
+	 * @param maxDepth - the deepest iteration to be searched, in [1, MAX_PLY]
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if(maxDepth < 1 || maxDepth > MAX_PLY)
+			throw new IllegalArgumentException("The maximum depth must be in [1, " + MAX_PLY + "]");
+		
+		this.maxDepth = maxDepth;
+	}
+	
+	/**
+	 * Enables or disables the <tt>MoveOrdering</tt> of the following
+	 * searches. When disabled, the move from the transposition table is
+	 * searched first and the others by their distance from the center.
+	 */
+	public void setMoveOrdering(boolean enabled) {
+		this.orderingEnabled = enabled;
+	}
+	
+	/**
+	 * Returns the no. of nodes visited by the last search.
+	 */
+	public long getNodes() {
+		return (nodes);
+	}
+	
+	/**
+	 * Returns the no. of beta cutoffs in the last search.
+	 */
+	public long getCutoffs() {
+		return (cutoffs);
+	}
+	
+	/**
+	 * Returns the no. of beta cutoffs in the last search caused by the first
+	 * move searched at a node. With good move ordering, nearly all cutoffs
+	 * are caused by the first move.
+	 */
+	public long getFirstMoveCutoffs() {
+		return (firstMoveCutoffs);
+	}
+	
+	/**
+	 * Returns the depth of the last iteration completed by the last search.
+	 */
+	public int getCompletedDepth() {
+		return (completedDepth);
+	}
+	
+	/**
+	 * Returns the score of the best move found by the last search, for the
+	 * side which was to move.
+	 */
+	public int getBestScore() {
+		return (bestScore);
+	}
+	
+	public TranspositionTable getTranspositionTable() {
+		return (table);
+	}
+
+}
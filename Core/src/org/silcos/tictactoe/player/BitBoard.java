@@ -0,0 +1,614 @@
+package org.silcos.tictactoe.player;
+
+import org.silcos.tictactoe.Board;
+import org.silcos.tictactoe.BoardSnapshot;
+import org.silcos.tictactoe.GameBoard;
+import org.silcos.tictactoe.MoveType;
+import org.silcos.tictactoe.WinningLines;
+import org.silcos.tictactoe.Zobrist;
+
+/**
+ * <p>
+ * Compact form of a <tt>Board</tt> position meant for searching. Each side
+ * holds one bitmask of the squares it has filled, and the square at <tt>
+ * (row, column)</tt> maps to the bit <tt>row * side + column</tt>. Boards up
+ * to 11x11 have 121 squares, hence each mask is split into a <tt>low</tt>
+ * word (bits 0-63) and a <tt>high</tt> word (bits 64-127).
+ * 
+ * <p>
+ * The masks of all capturable lines - the windows of <tt>winLength</tt>
+ * squares in a row listed by <tt>WinningLines</tt> - are precomputed once
+ * per board size & win length, so that finding a winner, listing the empty
+ * squares & playing moves only require mask operations.
+ * 
+ * <p>
+ * A <tt>BitBoard</tt> is not bound to a live <tt>Board</tt>; it can be
+ * built from one using <tt>fromBoard</tt> and converted back by <tt>
+ * toBoard</tt>. Both keep the same Zobrist position hash for the same
+ * position.
+ * 
+ * <p>
+ * The hashes of the seven images of the position under the symmetries of
+ * the board are kept alongside its own hash, each updated with one XOR per
+ * move. The smallest of the eight hashes identifies the <i>canonical</i>
+ * form of the position, which is shared by all its symmetric equivalents
+ * (see <tt>Symmetry</tt>).
+ * 
+ * @author Shukant Pal
+ */
+public final class BitBoard {
+	
+	/**
+	 * The smallest board side supported by <tt>BitBoard</tt>.
+	 */
+	public static final int MIN_SIDE = 3;
+	
+	/**
+	 * The largest board side supported by <tt>BitBoard</tt>; its area must
+	 * fit in the two words of a mask.
+	 */
+	public static final int MAX_SIDE = 11;
+	
+	/**
+	 * Holds the masks of all capturable lines on a board of a given size &
+	 * win length, along with the lines passing through each square. The
+	 * lines are indexed as the windows of <tt>WinningLines</tt>.
+	 * 
+	 * @author Shukant Pal
+	 */
+	static final class LineMasks {
+		
+		final int side;
+		final int winLength;
+		final int area;
+		final long areaLow;
+		final long areaHigh;
+		
+		final long[] lineLow;
+		final long[] lineHigh;
+		
+		/**
+		 * The indices (in <tt>lineLow, lineHigh</tt>) of the lines on which
+		 * each square lies on.
+		 */
+		final int[][] cellLines;
+		
+		LineMasks(int side, int winLength) {
+			WinningLines windows = WinningLines.of(side, winLength);
+			
+			this.side = side;
+			this.winLength = winLength;
+			this.area = side * side;
+			this.areaLow = (area >= 64) ? -1L : (1L << area) - 1;
+			this.areaHigh = (area > 64) ? (1L << (area - 64)) - 1 : 0L;
+			
+			int lineCount = windows.windowCount();
+			lineLow = new long[lineCount];
+			lineHigh = new long[lineCount];
+			
+			for(int line = 0; line < lineCount; line++) {
+				for(int offset = 0; offset < winLength; offset++)
+					addCell(line, windows.cellOf(line, offset));
+			}
+			
+			cellLines = new int[area][];
+			
+			for(int cell = 0; cell < area; cell++) {
+				cellLines[cell] = windows.windowsThrough(cell).clone();
+			}
+		}
+		
+		private void addCell(int line, int cell) {
+			if(cell < 64)
+				lineLow[line] |= 1L << cell;
+			else
+				lineHigh[line] |= 1L << (cell - 64);
+		}
+		
+		int lineCount() {
+			return (lineLow.length);
+		}
+	
+	}
+	
+	/**
+	 * The line masks of each board side & win length, indexed by side and
+	 * then by win length.
+	 */
+	private static final LineMasks[][] masksBySide = new LineMasks[MAX_SIDE + 1][];
+	
+	static {
+		for(int side = MIN_SIDE; side <= MAX_SIDE; side++) {
+			masksBySide[side] = new LineMasks[side + 1];
+			
+			for(int winLength = 1; winLength <= side; winLength++)
+				masksBySide[side][winLength] = new LineMasks(side, winLength);
+		}
+	}
+	
+	/**
+	 * Returns the precomputed line masks for a board of given side, on which
+	 * a full line must be filled to win.
+	 */
+	static LineMasks masksFor(int side) {
+		return (masksFor(side, side));
+	}
+	
+	/**
+	 * Returns the precomputed line masks for a board of given side & win
+	 * length.
+	 */
+	static LineMasks masksFor(int side, int winLength) {
+		if(side < MIN_SIDE || side > MAX_SIDE)
+			throw new IllegalArgumentException("BitBoard supports boards from " +
+					MIN_SIDE + "x" + MIN_SIDE + " to " + MAX_SIDE + "x" + MAX_SIDE);
+		
+		if(winLength < 1 || winLength > side)
+			throw new IllegalArgumentException("The win length must be in [1, " + side + "]");
+		
+		return (masksBySide[side][winLength]);
+	}
+	
+	final LineMasks masks;
+	
+	private final int[][] symmetryMaps;
+	
+	long oLow, oHigh;
+	long xLow, xHigh;
+	
+	private MoveType nextState;
+	private int filled;
+	
+	/**
+	 * The hashes of this position under each symmetry, indexed by the
+	 * symmetry; the hash under <tt>Symmetry.IDENTITY</tt> is the position
+	 * hash.
+	 */
+	private final long[] symmetricHashes = new long[Symmetry.COUNT];
+	
+	/**
+	 * Instantiates an empty <tt>BitBoard</tt> of the given side, on which
+	 * player <b>O</b> moves first.
+	 * 
+	 * @param side - the no. of squares in each row & column
+	 */
+	public BitBoard(int side) {
+		this(side, side);
+	}
+	
+	/**
+	 * Instantiates an empty <tt>BitBoard</tt> of the given side, on which
+	 * <tt>winLength</tt> squares in a row win and player <b>O</b> moves
+	 * first.
+	 * 
+	 * @param side - the no. of squares in each row & column
+	 * @param winLength - the no. of squares in a row needed to win
+	 */
+	public BitBoard(int side, int winLength) {
+		this.masks = masksFor(side, winLength);
+		this.symmetryMaps = Symmetry.mapsFor(side);
+		this.nextState = MoveType.O;
+		this.filled = 0;
+	}
+	
+	/**
+	 * Instantiates a copy of the given <tt>BitBoard</tt>.
+	 * 
+	 * @param other - the position to be copied
+	 */
+	public BitBoard(BitBoard other) {
+		this.masks = other.masks;
+		this.symmetryMaps = other.symmetryMaps;
+		copyFrom(other);
+	}
+	
+	/**
+	 * Overwrites this position with the given one, without allocating. Both
+	 * boards must be of the same side.
+	 * 
+	 * @param other - the position to be copied
+	 */
+	public void copyFrom(BitBoard other) {
+		if(other.masks != masks)
+			throw new IllegalArgumentException("Cannot copy a " + other.getSide() + "x" +
+					other.getSide() + " position onto a " + getSide() + "x" + getSide() +
+					" board, or across win lengths");
+		
+		this.oLow = other.oLow;
+		this.oHigh = other.oHigh;
+		this.xLow = other.xLow;
+		this.xHigh = other.xHigh;
+		this.nextState = other.nextState;
+		this.filled = other.filled;
+		System.arraycopy(other.symmetricHashes, 0, symmetricHashes, 0, Symmetry.COUNT);
+	}
+	
+	/**
+	 * Instantiates a <tt>BitBoard</tt> holding the same position as the given
+	 * live <tt>GameBoard</tt>, including the side which is to move next.
+	 * 
+	 * @param board - the board whose position is to be captured
+	 */
+	public static BitBoard fromBoard(GameBoard board) {
+		BitBoard position = new BitBoard(board.getSide(), board.getWinLength());
+		int side = board.getSide();
+		
+		for(int row = 0; row < side; row++) {
+			for(int column = 0; column < side; column++) {
+				MoveType state = board.getState(row, column);
+				
+				if(state != MoveType.EMPTY)
+					position.fill(state, row * side + column);
+			}
+		}
+		
+		position.nextState = board.getNextState();
+		return (position);
+	}
+	
+	/**
+	 * Instantiates a <tt>BitBoard</tt> holding the position captured by the
+	 * given snapshot, including the side which is to move next. Unlike <tt>
+	 * fromBoard</tt>, it can be used while the game goes on in another
+	 * thread.
+	 * 
+	 * @param snapshot - the snapshot of a board
+	 */
+	public static BitBoard fromSnapshot(BoardSnapshot snapshot) {
+		BitBoard position = new BitBoard(snapshot.getSide(), snapshot.getWinLength());
+		
+		for(int word = 0; word < snapshot.getMaskWords(); word++) {
+			for(long mask = snapshot.getOMask(word); mask != 0; mask &= mask - 1)
+				position.fill(MoveType.O, 64 * word + Long.numberOfTrailingZeros(mask));
+			
+			for(long mask = snapshot.getXMask(word); mask != 0; mask &= mask - 1)
+				position.fill(MoveType.X, 64 * word + Long.numberOfTrailingZeros(mask));
+		}
+		
+		position.nextState = snapshot.getNextState();
+		return (position);
+	}
+	
+	/**
+	 * Instantiates a new live <tt>Board</tt> holding this position. The moves
+	 * of both sides are replayed alternately, so that the returned board
+	 * expects the same side to move next.
+	 */
+	public Board toBoard() {
+		Board board = new Board(getSide(), getWinLength());
+		long[] pending = { oLow, oHigh, xLow, xHigh };
+		
+		int oCount = Long.bitCount(oLow) + Long.bitCount(oHigh);
+		int xCount = Long.bitCount(xLow) + Long.bitCount(xHigh);
+		boolean oTurn = (oCount > xCount)
+				|| (oCount == xCount && nextState == MoveType.O);
+		
+		for(int moves = oCount + xCount; moves > 0; moves--) {
+			int word = oTurn ? 0 : 2;
+			
+			if(pending[word] == 0 && pending[word + 1] == 0)
+				word = 2 - word;
+			
+			int cell = (pending[word] != 0)
+					? Long.numberOfTrailingZeros(pending[word])
+					: 64 + Long.numberOfTrailingZeros(pending[word + 1]);
+			
+			if(cell < 64)
+				pending[word] &= pending[word] - 1;
+			else
+				pending[word + 1] &= pending[word + 1] - 1;
+			
+			board.setState(word == 0 ? MoveType.O : MoveType.X, cell / getSide(), cell % getSide());
+			oTurn = !oTurn;
+		}
+		
+		return (board);
+	}
+	
+	private void fill(MoveType state, int cell) {
+		if(state == MoveType.O) {
+			if(cell < 64)
+				oLow |= 1L << cell;
+			else
+				oHigh |= 1L << (cell - 64);
+		} else {
+			if(cell < 64)
+				xLow |= 1L << cell;
+			else
+				xHigh |= 1L << (cell - 64);
+		}
+		
+		++(filled);
+		updateHashes(state, cell);
+	}
+	
+	private void updateHashes(MoveType state, int cell) {
+		for(int transform = 0; transform < Symmetry.COUNT; transform++) {
+			symmetricHashes[transform] ^= Zobrist.keyOf(state, symmetryMaps[transform][cell]);
+		}
+	}
+	
+	public int getSide() {
+		return (masks.side);
+	}
+	
+	public int getWinLength() {
+		return (masks.winLength);
+	}
+	
+	public int getArea() {
+		return (masks.area);
+	}
+	
+	public int getEmptyArea() {
+		return (masks.area - filled);
+	}
+	
+	public MoveType getNextState() {
+		return (nextState);
+	}
+	
+	/**
+	 * Sets the side which is to move next, e.g. when a position is taken
+	 * from a live <tt>Board</tt> on which a player is about to move.
+	 * 
+	 * @param nextState - <tt>MoveType.O</tt> or <tt>MoveType.X</tt>
+	 */
+	public void setNextState(MoveType nextState) {
+		if(nextState == MoveType.EMPTY)
+			throw new IllegalArgumentException("The next state must be O or X");
+		
+		this.nextState = nextState;
+	}
+	
+	/**
+	 * Returns the Zobrist hash of this position, which is equal to the
+	 * <tt>Board.getPositionHash()</tt> of a board holding it.
+	 */
+	public long getPositionHash() {
+		return (symmetricHashes[Symmetry.IDENTITY]);
+	}
+	
+	/**
+	 * Returns the hash of the image of this position under the given
+	 * symmetry.
+	 * 
+	 * @param transform - the index of the symmetry
+	 */
+	public long getSymmetricHash(int transform) {
+		return (symmetricHashes[transform]);
+	}
+	
+	/**
+	 * Returns the symmetry which maps this position onto its canonical form,
+	 * i.e. the image with the smallest hash. If several symmetries give the
+	 * same image, the one with the lowest index is returned.
+	 */
+	public int getCanonicalTransform() {
+		int canonical = Symmetry.IDENTITY;
+		
+		for(int transform = 1; transform < Symmetry.COUNT; transform++) {
+			if(symmetricHashes[transform] < symmetricHashes[canonical])
+				canonical = transform;
+		}
+		
+		return (canonical);
+	}
+	
+	/**
+	 * Returns the hash of the canonical form of this position, which is the
+	 * same for all positions symmetric to it.
+	 */
+	public long getCanonicalHash() {
+		return (symmetricHashes[getCanonicalTransform()]);
+	}
+	
+	/**
+	 * Instantiates the image of this position under the given symmetry, with
+	 * the same side to move.
+	 * 
+	 * @param transform - the index of the symmetry
+	 */
+	public BitBoard transform(int transform) {
+		BitBoard image = new BitBoard(getSide(), getWinLength());
+		
+		for(int cell = 0; cell < getArea(); cell++) {
+			MoveType state = getState(cell);
+			
+			if(state != MoveType.EMPTY)
+				image.fill(state, symmetryMaps[transform][cell]);
+		}
+		
+		image.nextState = nextState;
+		return (image);
+	}
+	
+	/**
+	 * Instantiates the canonical form of this position.
+	 */
+	public BitBoard toCanonical() {
+		return (transform(getCanonicalTransform()));
+	}
+	
+	/**
+	 * Returns whether this position is its own image under the given
+	 * symmetry. Unlike comparing hashes, the squares are compared exactly.
+	 * 
+	 * @param transform - the index of the symmetry
+	 */
+	public boolean isSymmetricUnder(int transform) {
+		int[] map = symmetryMaps[transform];
+		
+		for(int cell = 0; cell < getArea(); cell++) {
+			if(getState(cell) != getState(map[cell]))
+				return (false);
+		}
+		
+		return (true);
+	}
+	
+	/**
+	 * Returns the index of the square at <tt>(row, column)</tt> in the masks
+	 * of this board.
+	 */
+	public int indexOf(int row, int column) {
+		return (row * getSide() + column);
+	}
+	
+	public MoveType getState(int row, int column) {
+		return (getState(indexOf(row, column)));
+	}
+	
+	public MoveType getState(int cell) {
+		if(cell < 64) {
+			long bit = 1L << cell;
+			
+			if((oLow & bit) != 0)
+				return (MoveType.O);
+			else if((xLow & bit) != 0)
+				return (MoveType.X);
+		} else {
+			long bit = 1L << (cell - 64);
+			
+			if((oHigh & bit) != 0)
+				return (MoveType.O);
+			else if((xHigh & bit) != 0)
+				return (MoveType.X);
+		}
+		
+		return (MoveType.EMPTY);
+	}
+	
+	public boolean isEmpty(int cell) {
+		if(cell < 64)
+			return (((oLow | xLow) & (1L << cell)) == 0);
+		else
+			return (((oHigh | xHigh) & (1L << (cell - 64))) == 0);
+	}
+	
+	/**
+	 * Returns the low word (squares 0-63) of the mask of empty squares.
+	 */
+	public long emptyLow() {
+		return (masks.areaLow & ~(oLow | xLow));
+	}
+	
+	/**
+	 * Returns the high word (squares 64-127) of the mask of empty squares.
+	 */
+	public long emptyHigh() {
+		return (masks.areaHigh & ~(oHigh | xHigh));
+	}
+	
+	/**
+	 * Writes the indices of all empty squares into <tt>buffer</tt> in
+	 * ascending order, without allocating.
+	 * 
+	 * @param buffer - an array of at least <tt>getEmptyArea()</tt> length
+	 * @return - the no. of empty squares written into <tt>buffer</tt>
+	 */
+	public int getEmptyCells(int[] buffer) {
+		int count = 0;
+		
+		for(long empty = emptyLow(); empty != 0; empty &= empty - 1)
+			buffer[count++] = Long.numberOfTrailingZeros(empty);
+		
+		for(long empty = emptyHigh(); empty != 0; empty &= empty - 1)
+			buffer[count++] = 64 + Long.numberOfTrailingZeros(empty);
+		
+		return (count);
+	}
+	
+	/**
+	 * Plays the next move on the given empty square, and passes the turn
+	 * to the other side.
+	 * 
+	 * @param cell - the index of an empty square
+	 */
+	public void play(int cell) {
+		if(!isEmpty(cell))
+			throw new IllegalArgumentException("Square " + cell + " has already been filled");
+		
+		fill(nextState, cell);
+		nextState = (nextState == MoveType.O) ? MoveType.X : MoveType.O;
+	}
+	
+	/**
+	 * Takes back the move on the given square, and passes the turn back to
+	 * the side which had played it.
+	 * 
+	 * @param cell - the index of a filled square
+	 */
+	public void undo(int cell) {
+		MoveType owner = getState(cell);
+		
+		if(owner == MoveType.EMPTY)
+			throw new IllegalArgumentException("Square " + cell + " is already empty");
+		
+		long lowClear = (cell < 64) ? ~(1L << cell) : -1L;
+		long highClear = (cell < 64) ? -1L : ~(1L << (cell - 64));
+		
+		if(owner == MoveType.O) {
+			oLow &= lowClear;
+			oHigh &= highClear;
+		} else {
+			xLow &= lowClear;
+			xHigh &= highClear;
+		}
+		
+		--(filled);
+		updateHashes(owner, cell);
+		nextState = owner;
+	}
+	
+	/**
+	 * Returns whether the move made on the given square has captured a
+	 * line for its owner. Only the lines through that square are checked.
+	 * 
+	 * @param cell - the index of a filled square
+	 */
+	public boolean isWinningMove(int cell) {
+		MoveType owner = getState(cell);
+		
+		if(owner == MoveType.EMPTY)
+			return (false);
+		
+		long low = (owner == MoveType.O) ? oLow : xLow;
+		long high = (owner == MoveType.O) ? oHigh : xHigh;
+		
+		for(int line : masks.cellLines[cell]) {
+			if((low & masks.lineLow[line]) == masks.lineLow[line]
+					&& (high & masks.lineHigh[line]) == masks.lineHigh[line])
+				return (true);
+		}
+		
+		return (false);
+	}
+	
+	/**
+	 * Checks all capturable lines on this position, and returns the side
+	 * which has fully captured one.
+	 * 
+	 * @return - the side which has won; <tt>MoveType.EMPTY</tt>, if no line
+	 * 			has been captured yet.
+	 */
+	public MoveType findWinner() {
+		for(int line = 0; line < masks.lineCount(); line++) {
+			long lineLow = masks.lineLow[line];
+			long lineHigh = masks.lineHigh[line];
+			
+			if((oLow & lineLow) == lineLow && (oHigh & lineHigh) == lineHigh)
+				return (MoveType.O);
+			
+			if((xLow & lineLow) == lineLow && (xHigh & lineHigh) == lineHigh)
+				return (MoveType.X);
+		}
+		
+		return (MoveType.EMPTY);
+	}
+	
+	public boolean isFull() {
+		return (filled == masks.area);
+	}
+
+}
@@ -2,12 +2,15 @@ package org.silcos.tictactoe.player;
 
 import java.util.LinkedList;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
 
-import org.silcos.tictactoe.Board;
-import org.silcos.tictactoe.BoardAnalyzer;
+import org.silcos.tictactoe.BoardSnapshot;
+import org.silcos.tictactoe.GameBoard;
 import org.silcos.tictactoe.GameController;
+import org.silcos.tictactoe.MoveResult;
 import org.silcos.tictactoe.MoveType;
 import org.silcos.tictactoe.Player;
+import org.silcos.tictactoe.SparseBoard;
 
 /**
  * <p>
@@ -33,11 +36,42 @@ public class ComputerPlayer extends Player {
 		DIAGONAL_URBL
 	}
 	
-	enum Mode {
+	/**
+	 * The level at which a <tt>ComputerPlayer</tt> plays:
+	 * <ul>
+	 * 		<li> <tt>EASY</tt> plays random moves.
+	 * 		<li> <tt>MEDIUM</tt> wins or blocks a win when it can, otherwise
+	 * 			it plays random moves.
+	 * 		<li> <tt>HARD</tt> plays perfectly on 3x3 boards using the <tt>
+	 * 			PerfectPlayTable</tt>. On larger boards, it searches the game
+	 * 			tree within the move-time using an <tt>AlphaBetaEngine</tt> (a
+	 * 			<tt>LazySmpEngine</tt> on machines with several processors) on
+	 * 			boards smaller than <tt>MONTE_CARLO_MIN_SIDE</tt> & a <tt>
+	 * 			MonteCarloEngine</tt> on the larger ones, as chosen by its
+	 * 			<tt>HardModeEngine</tt>. Boards which a <tt>
+	 * 			BitBoard</tt> cannot hold (larger than <tt>BitBoard.MAX_SIDE
+	 * 			</tt>) are not searched; there, it plays like <tt>MEDIUM</tt>.
+	 * </ul>
+	 * 
+	 * @author Shukant Pal
+	 */
+	public enum Mode {
 		EASY,
 		MEDIUM,
 		HARD
 	}
+	
+	/**
+	 * The time given to a <tt>HARD</tt> search for each move, when none is
+	 * specified, in milliseconds.
+	 */
+	public static final long DEFAULT_MOVE_TIME = 1000;
+	
+	/**
+	 * The smallest board side on which a <tt>HARD</tt> player searches
+	 * using Monte Carlo Tree Search instead of alpha-beta search.
+	 */
+	public static final int MONTE_CARLO_MIN_SIDE = 9;
 
 	private class Move {
 		int row;
@@ -115,31 +149,42 @@ public class ComputerPlayer extends Player {
 	/**
 	 * Exposes a <tt>Callable</tt> task that can be used by the front-end
 	 * application to offload the <tt>ComputerPlayer</tt> object's computation
-	 * to another worker thread.
+	 * to another worker thread. A <tt>HARD</tt> search reads the position
+	 * from the snapshot given to the task, which must have been taken by
+	 * the thread applying the moves; without one, it takes a snapshot on the
+	 * thread running the task.
 	 * 
 	 * @author Shukant Pal
 	 */
 	public class CallablePlay implements Callable<Void> {
+		
+		private final BoardSnapshot position;
+		
+		CallablePlay(BoardSnapshot position) {
+			this.position = position;
+		}
 
 		@Override
 		public Void call() throws Exception {
-			play();
+			play(position);
 			return (null);
 		}
 		
 	}
 	
 	LinkedList<Move> moves;
-	Board.LineIterator rowIterator;
-	Board.LineIterator columnIterator;
-	Board.LineIterator diagonalIterator;
 	CallablePlay callable;
 	
-	private void cleanState() {
-		rowIterator.setLineIndex(0);
-		columnIterator.setLineIndex(0);
-		diagonalIterator.setLineIndex(0);
-	}
+	/**
+	 * Chooses the moves in <tt>HARD</tt> mode. It keeps its engine & its
+	 * transposition table across calls to <tt>play()</tt>, so that each move
+	 * does not start from nothing; both are created on the first search, as
+	 * players in the other modes never search.
+	 */
+	HardModeEngine hardModeEngine;
+	
+	Mode mode;
+	long moveTime;
 	
 	private MoveType opponentSide() {
 		if(assignedSide() == MoveType.O) {
@@ -150,36 +195,17 @@ public class ComputerPlayer extends Player {
 	}
 	
 	/**
-	 * 
-	 * @param observer
-	 * @return
+	 * Returns a move that will win the game for <tt>observer</tt> at once;
+	 * <tt>null</tt>, if there is none. The board keeps an index of the
+	 * windows one move from completion, so this costs O(1).
 	 */
 	private Move victoryFor(MoveType observer) {
-		cleanState();
-		
-		if(BoardAnalyzer.getCapturable(rowIterator, observer) != null) {
-			System.out.println("Found row capturable:" + rowIterator.getLineIndex());
-			int rowIdx = rowIterator.getLineIndex();
-			int colIdx = BoardAnalyzer.newRowFinder(rowIdx, getGameSet()).closestEmpty().getCurColumn();
-			return (new Move(rowIdx, colIdx));
-		}
-		
-		if(BoardAnalyzer.getCapturable(columnIterator, observer) != null) {
-			System.out.println("Found column capturable:" + columnIterator.getLineIndex());
-			int colIdx = columnIterator.getLineIndex();
-			int rowIdx = BoardAnalyzer.newColumnFinder(colIdx, getGameSet()).closestEmpty().getCurRow();
-			return (new Move(rowIdx, colIdx));
-		}
+		int cell = getGameSet().findWinningCell(observer);
 		
-		if(BoardAnalyzer.getCapturable(diagonalIterator, observer) != null) {
-			System.out.println("Found diagonal capturable: " + diagonalIterator.getLineIndex());
-			int diagIdx = diagonalIterator.getLineIndex();
-			Board.CellIterator diagFinder = BoardAnalyzer.newDiagonalFinder(
-					diagIdx, getGameSet()).closestEmpty();
-			return (new Move(diagFinder.getCurRow(), diagFinder.getCurColumn()));
-		}
+		if(cell < 0)
+			return (null);
 		
-		return (null);
+		return (new Move(cell / getGameSet().getSide(), cell % getGameSet().getSide()));
 	}
 	
 	/**
@@ -188,15 +214,31 @@ public class ComputerPlayer extends Player {
 	 */
 	int linePipe;
 	
-	public ComputerPlayer(GameController.Bridge gameInstance, Board gameSet, MoveType side) {
+	public ComputerPlayer(GameController.Bridge gameInstance, GameBoard gameSet, MoveType side) {
+		this(gameInstance, gameSet, side, TranspositionTable.DEFAULT_BUDGET);
+	}
+	
+	/**
+	 * Instantiates a <tt>ComputerPlayer</tt> whose transposition table uses
+	 * at most <tt>tableBudget</tt> bytes. It can play on any bounded board.
+	 * 
+	 * @param tableBudget - the memory budget of the transposition table in bytes
+	 * @throws IllegalArgumentException if the board is an unbounded <tt>
+	 * 			SparseBoard</tt>, whose squares have no index
+	 */
+	public ComputerPlayer(GameController.Bridge gameInstance, GameBoard gameSet, MoveType side,
+			long tableBudget) {
 		super(gameInstance, gameSet, side);
-		moves = new LinkedList<Move>();
 		
-		rowIterator = getGameSet().rowIterator();
-		columnIterator = getGameSet().columnIterator();
-		diagonalIterator = getGameSet().diagonalIterator();
+		if(gameSet.getSide() == SparseBoard.UNBOUNDED)
+			throw new IllegalArgumentException("A ComputerPlayer cannot play on an unbounded board");
+		
+		moves = new LinkedList<Move>();
+		hardModeEngine = new HardModeEngine(tableBudget);
+		mode = Mode.MEDIUM;
+		moveTime = DEFAULT_MOVE_TIME;
 		
-		callable = new CallablePlay();
+		callable = new CallablePlay(null);
 	}
 	
 	/**
@@ -215,51 +257,171 @@ public class ComputerPlayer extends Player {
 	}
 	
 	private Move getRandomMove() {
-		System.out.println("Generating Random Move... ");
-		int emptyIndex = (int) ((Math.random()*100) % getGameSet().getEmptyArea());
+		int cell = getGameSet().randomEmptyCell(ThreadLocalRandom.current());
 		
-		for(int i=0; i<getGameSet().getSide(); i++) {
-			for(int j=0; j<getGameSet().getSide(); j++) {
-				if(getGameSet().getState(i, j) == MoveType.EMPTY) {
-					if(emptyIndex == 0) {
-						return (new Move(i, j));
-					} else {
-						--emptyIndex;
-					}
-				}
-			}
-		}
+		if(cell < 0)
+			return (null);
+		
+		return (new Move(cell / getGameSet().getSide(), cell % getGameSet().getSide()));
+	}
+	
+	/**
+	 * Returns whether the board of this player can be searched, i.e. held
+	 * by a <tt>BitBoard</tt>.
+	 */
+	private boolean isSearchable() {
+		int side = getGameSet().getSide();
 		
-		return (null);/* Can't happen :( */
+		return (side >= BitBoard.MIN_SIDE && side <= BitBoard.MAX_SIDE);
 	}
 	
+	/**
+	 * Searches the current position using the <tt>HardModeEngine</tt> of
+	 * this player, returning the best move found within <tt>moveTime</tt>,
+	 * from the given snapshot (or one taken now, if it is <tt>null</tt>).
+	 */
+	private Move getSearchedMove(BoardSnapshot snapshot) {
+		if(snapshot == null)
+			snapshot = getGameSet().snapshot();
+		
+		BitBoard position = BitBoard.fromSnapshot(snapshot);
+		position.setNextState(assignedSide());
+		
+		int cell = hardModeEngine.search(position, moveTime);
+		
+		if(cell < 0)
+			return (null);
+		
+		return (new Move(cell / position.getSide(), cell % position.getSide()));
+	}
+	
+	/**
+	 * Returns the engine which searches the positions of this player in <tt>
+	 * HARD</tt> mode, that are not held by its tables. Unless one has been
+	 * set, it is created on the first call.
+	 * 
+	 * @see HardModeEngine#getSearchEngine(int)
+	 */
+	public SearchEngine getSearchEngine() {
+		return (hardModeEngine.getSearchEngine(getGameSet().getSide()));
+	}
+	
+	/**
+	 * Replaces the engine used by this player in <tt>HARD</tt> mode.
+	 * 
+	 * @param searchEngine - the engine which will search the next moves
+	 */
+	public void setSearchEngine(SearchEngine searchEngine) {
+		hardModeEngine.setSearchEngine(searchEngine);
+	}
+	
+	public Mode getMode() {
+		return (mode);
+	}
+	
+	public void setMode(Mode mode) {
+		this.mode = mode;
+	}
+	
+	/**
+	 * Returns the time given to a <tt>HARD</tt> search for each move, in
+	 * milliseconds.
+	 */
+	public long getMoveTime() {
+		return (moveTime);
+	}
+	
+	/**
+	 * Sets the time given to a <tt>HARD</tt> search for each move. On large
+	 * boards, the best move found when it ends is played.
+	 * 
+	 * @param moveTime - the deadline of each search, in milliseconds
+	 */
+	public void setMoveTime(long moveTime) {
+		if(moveTime <= 0)
+			throw new IllegalArgumentException("The move-time must be positive");
+		
+		this.moveTime = moveTime;
+	}
+	
+	/**
+	 * Shuts down the engine of this player, if it has been created, when its
+	 * game is closed.
+	 */
+	public void close() {
+		hardModeEngine.shutdown();
+	}
+	
+	/**
+	 * Returns a task playing the next move of this player, which takes the
+	 * snapshot of the board on the thread running it; hence, it must be run
+	 * by the thread applying the moves.
+	 */
 	public CallablePlay getCallablePlay() {
 		return (callable);
 	}
 	
+	/**
+	 * Returns a task playing the next move of this player from the given
+	 * snapshot, so that it can run on any thread.
+	 * 
+	 * @param position - the snapshot of the board, taken by the thread
+	 * 				applying the moves
+	 */
+	public CallablePlay newCallablePlay(BoardSnapshot position) {
+		return (new CallablePlay(position));
+	}
+	
+	/**
+	 * Returns the transposition table of this player, whose statistics can
+	 * be used to size its memory budget. It is created on the first call.
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return (hardModeEngine.getTranspositionTable());
+	}
+	
 	@Override
 	protected void play() {
-		Move mm = victory();
+		play(null);
+	}
+	
+	/**
+	 * Plays the next move of this player, searching the given snapshot in
+	 * <tt>HARD</tt> mode (or one taken now, if it is <tt>null</tt>).
+	 */
+	protected void play(BoardSnapshot position) {
+		Move mm = null;
 		
-		if(mm == null)
-			mm = opponentVictory();// Put your piece where opponent could get victory
+		if(mode == Mode.HARD && isSearchable())
+			mm = getSearchedMove(position);
+		
+		if(mm == null && mode != Mode.EASY) {
+			mm = victory();
+			
+			if(mm == null)
+				mm = opponentVictory();// Put your piece where opponent could get victory
+		}
 		
 		if(mm == null)
 			mm = getRandomMove();
 		
 		if(mm == null) {
-			System.out.println("Error: No valid move could be found!");
+			System.err.println("Error: No valid move could be found!");
+			failPlay(new IllegalStateException("No valid move could be found"));
 			return;
 		}
 			
 		moves.push(mm);
 		
+		int row = mm.row;
+		int column = mm.column;
 		
-		if(getGameSet().setState(assignedSide(), mm.row, mm.column))
-			notifyPlay(mm.row, mm.column);
-		else
-			System.err.println("Fatal Error *:* Calculated move not valid at" +
-								"(" + mm.row + "," + mm.column + ")");
+		// The move is rejected without an error if the game was closed meanwhile
+		submitPlay(row, column).whenComplete((MoveResult result, Throwable error) -> {
+			if(error instanceof IllegalArgumentException)
+				System.err.println("Fatal Error *:* Calculated move not valid at" +
+									"(" + row + "," + column + ")");
+		});
 	}
 	
 }
@@ -0,0 +1,144 @@
+package org.silcos.tictactoe.player;
+
+/**
+ * <p>
+ * Chooses the moves of a <tt>ComputerPlayer</tt> in <tt>Mode.HARD</tt>, so
+ * that the same pipeline can be played outside a game, e.g. by the <tt>
+ * Arena</tt>. On a 3x3 board, the optimal move is looked up in the <tt>
+ * PerfectPlayTable</tt>. Otherwise, the <tt>OpeningBook</tt> of the board
+ * size is consulted first, and the position is searched only if the book
+ * does not hold it: by a <tt>MonteCarloEngine</tt> on boards of <tt>
+ * ComputerPlayer.MONTE_CARLO_MIN_SIDE</tt> or more, otherwise by a <tt>
+ * LazySmpEngine</tt> (an <tt>AlphaBetaEngine</tt> on machines with one
+ * processor) using the transposition table.
+ * 
+ * <p>
+ * The engine & the transposition table are created on the first search
+ * which needs them, for the size of the board searched, and the engine is
+ * replaced if a board of another size is searched later.
+ * 
+ * @author Shukant Pal
+ */
+public class HardModeEngine implements SearchEngine {
+	
+	private final long tableBudget;
+	private TranspositionTable table;
+	
+	private SearchEngine searchEngine;
+	private int engineSide;
+	
+	/**
+	 * Whether <tt>searchEngine</tt> was given by <tt>setSearchEngine</tt>, in
+	 * which case it is kept for boards of any size.
+	 */
+	private boolean engineGiven;
+	
+	/**
+	 * The opening book of the board size last searched, and that size; <tt>
+	 * null</tt>, if there is none.
+	 */
+	private OpeningBook openingBook;
+	private int bookSide;
+	private int bookWinLength;
+	
+	/**
+	 * Instantiates a <tt>HardModeEngine</tt> whose transposition table uses
+	 * the default budget.
+	 */
+	public HardModeEngine() {
+		this(TranspositionTable.DEFAULT_BUDGET);
+	}
+	
+	/**
+	 * Instantiates a <tt>HardModeEngine</tt> whose transposition table uses
+	 * at most <tt>tableBudget</tt> bytes.
+	 * 
+	 * @param tableBudget - the memory budget of the transposition table in bytes
+	 */
+	public HardModeEngine(long tableBudget) {
+		this.tableBudget = tableBudget;
+	}
+	
+	@Override
+	public int search(BitBoard root, long timeBudget) {
+		if(PerfectPlayTable.contains(root))
+			return (PerfectPlayTable.getBestMove(root));
+		
+		OpeningBook book = getOpeningBook(root.getSide(), root.getWinLength());
+		int cell = (book != null) ? book.probe(root) : OpeningBook.NO_MOVE;
+		
+		if(cell == OpeningBook.NO_MOVE)
+			cell = getSearchEngine(root.getSide()).search(root, timeBudget);
+		
+		return (cell);
+	}
+	
+	private OpeningBook getOpeningBook(int side, int winLength) {
+		if(side != bookSide || winLength != bookWinLength) {
+			openingBook = OpeningBook.forBoard(side, winLength);
+			bookSide = side;
+			bookWinLength = winLength;
+		}
+		
+		return (openingBook);
+	}
+	
+	/**
+	 * Returns the engine which searches boards of the given side, creating it
+	 * unless one has been set.
+	 * 
+	 * @param side - the side of the board to be searched
+	 */
+	public SearchEngine getSearchEngine(int side) {
+		if(searchEngine != null && (engineGiven || side == engineSide))
+			return (searchEngine);
+		
+		if(searchEngine != null)
+			searchEngine.shutdown();
+		
+		if(side >= ComputerPlayer.MONTE_CARLO_MIN_SIDE)
+			searchEngine = new MonteCarloEngine();
+		else if(Runtime.getRuntime().availableProcessors() > 1)
+			searchEngine = new LazySmpEngine(getTranspositionTable());
+		else
+			searchEngine = new AlphaBetaEngine(getTranspositionTable());
+		
+		engineSide = side;
+		return (searchEngine);
+	}
+	
+	/**
+	 * Replaces the engine which searches the positions not held by the
+	 * tables, for boards of any size.
+	 * 
+	 * @param searchEngine - the engine which will search the next moves
+	 */
+	public void setSearchEngine(SearchEngine searchEngine) {
+		if(searchEngine == null)
+			throw new IllegalArgumentException("The search engine must be specified");
+		
+		this.searchEngine = searchEngine;
+		this.engineGiven = true;
+	}
+	
+	/**
+	 * Returns the transposition table of the alpha-beta engines, whose
+	 * statistics can be used to size its memory budget. It is created on the
+	 * first call.
+	 */
+	public TranspositionTable getTranspositionTable() {
+		if(table == null)
+			table = new TranspositionTable(tableBudget);
+		
+		return (table);
+	}
+	
+	@Override
+	public void shutdown() {
+		SearchEngine engine = searchEngine;
+		
+		if(engine != null)
+			engine.shutdown();
+	}
+
+}
@@ -1,13 +1,16 @@
 package org.silcos.tictactoe.player;
 
-import org.silcos.tictactoe.Board;
+import java.util.concurrent.CompletableFuture;
+
+import org.silcos.tictactoe.GameBoard;
 import org.silcos.tictactoe.GameController;
+import org.silcos.tictactoe.MoveResult;
 import org.silcos.tictactoe.MoveType;
 import org.silcos.tictactoe.Player;
 
 public class HumanPlayer extends Player {
 
-	public HumanPlayer(GameController.Bridge gameBridge, Board gameSet, MoveType side) {
+	public HumanPlayer(GameController.Bridge gameBridge, GameBoard gameSet, MoveType side) {
 		super(gameBridge, gameSet, side);
 	}
 
@@ -15,11 +18,13 @@ public class HumanPlayer extends Player {
 		throw new UnsupportedOperationException();
 	}
 	
-	public void playAt(int row, int column) {
-		if(!getGameSet().setState(assignedSide(), row, column)) {
-			throw new IllegalArgumentException("(Row, Column) given has already been filled");
-		}
-		
-		notifyPlay(row, column);
+	/**
+	 * Plays the given square. The returned future fails with an <tt>
+	 * IllegalArgumentException</tt> if the square is filled or out of
+	 * bounds, and with an <tt>IllegalStateException</tt> if it is not the
+	 * turn of this player; see <tt>GameController.submitMove</tt>.
+	 */
+	public CompletableFuture<MoveResult> playAt(int row, int column) {
+		return (submitPlay(row, column));
 	}
 }
@@ -0,0 +1,191 @@
+package org.silcos.tictactoe.player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ * Searches a position with several <tt>AlphaBetaEngine</tt>s at once, all
+ * sharing one <tt>TranspositionTable</tt> (<i>Lazy SMP</i>). The threads do
+ * not divide the work among themselves; each runs the same iterative
+ * deepening search, and they speed up each other only through the results
+ * they leave in the table. Half of the helpers start one depth ahead of the
+ * others, so that the threads do not walk the tree in lock-step.
+ * 
+ * <p>
+ * The main search runs on the calling thread - which is a worker of the
+ * <tt>AiScheduler</tt> when invoked by <tt>ComputerPlayer.CallablePlay</tt>
+ * - while the helpers run on a pool shared by all engines. When the main
+ * search ends, the helpers are stopped and the move of the deepest completed
+ * iteration is played.
+ * 
+ * @author Shukant Pal
+ */
+public class LazySmpEngine implements SearchEngine {
+	
+	/**
+	 * Runs the helpers of all engines. Its threads are started as searches
+	 * need them and end after a minute idle, so an engine owns no threads;
+	 * there are only as many as the helpers of the searches running at once,
+	 * which the <tt>AiScheduler</tt> bounds.
+	 */
+	private static class HelperPool {
+		static final ExecutorService POOL = Executors.newCachedThreadPool((Runnable task) -> {
+			Thread helper = new Thread(task, "LazySmpEngine-helper");
+			helper.setDaemon(true);
+			return (helper);
+		});
+	}
+	
+	private final TranspositionTable table;
+	private final AlphaBetaEngine mainEngine;
+	private final AlphaBetaEngine[] helpers;
+	
+	private AlphaBetaEngine lastEngine;
+	private long lastNodes;
+	
+	/**
+	 * Instantiates a <tt>LazySmpEngine</tt> searching on the given no. of
+	 * threads, including the calling thread.
+	 * 
+	 * @param table - the transposition table shared by all threads
+	 * @param threads - the no. of threads searching each position
+	 */
+	public LazySmpEngine(TranspositionTable table, int threads) {
+		if(threads < 1)
+			throw new IllegalArgumentException("At least one thread is required");
+		
+		this.table = table;
+		this.mainEngine = new AlphaBetaEngine(table);
+		this.helpers = new AlphaBetaEngine[threads - 1];
+		
+		for(int idx = 0; idx < helpers.length; idx++) {
+			helpers[idx] = new AlphaBetaEngine(table);
+		}
+		
+		this.lastEngine = mainEngine;
+	}
+	
+	/**
+	 * Instantiates a <tt>LazySmpEngine</tt> searching on all available
+	 * processors.
+	 * 
+	 * @param table - the transposition table shared by all threads
+	 */
+	public LazySmpEngine(TranspositionTable table) {
+		this(table, Runtime.getRuntime().availableProcessors());
+	}
+	
+	@Override
+	public int search(BitBoard root, long timeBudget) {
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>(helpers.length);
+		
+		mainEngine.stopRequested = false;
+		
+		for(int idx = 0; idx < helpers.length; idx++) {
+			AlphaBetaEngine helper = helpers[idx];
+			int firstDepth = 1 + (idx % 2);
+			
+			helper.stopRequested = false;
+			results.add(HelperPool.POOL.submit(() -> helper.search(root, timeBudget, firstDepth)));
+		}
+		
+		int bestMove = mainEngine.search(root, timeBudget);
+		
+		for(AlphaBetaEngine helper : helpers) {
+			helper.stopRequested = true;
+		}
+		
+		lastEngine = mainEngine;
+		lastNodes = mainEngine.getNodes();
+		
+		for(int idx = 0; idx < helpers.length; idx++) {
+			int helperMove = get(results.get(idx));
+			AlphaBetaEngine helper = helpers[idx];
+			
+			lastNodes += helper.getNodes();
+			
+			if(helper.getCompletedDepth() > lastEngine.getCompletedDepth()) {
+				lastEngine = helper;
+				bestMove = helperMove;
+			}
+		}
+		
+		return (bestMove);
+	}
+	
+	private static int get(Future<Integer> result) {
+		try {
+			return (result.get());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while searching", e);
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("A search thread failed", e.getCause());
+		}
+	}
+	
+	/**
+	 * Limits the depth of the following searches on all threads.
+	 * 
+	 * @param maxDepth - the deepest iteration to be searched, in [1, MAX_PLY]
+	 * @see AlphaBetaEngine#setMaxDepth(int)
+	 */
+	public void setMaxDepth(int maxDepth) {
+		mainEngine.setMaxDepth(maxDepth);
+		
+		for(AlphaBetaEngine helper : helpers) {
+			helper.setMaxDepth(maxDepth);
+		}
+	}
+	
+	/**
+	 * Returns the no. of nodes visited by the last search, across all
+	 * threads.
+	 */
+	public long getNodes() {
+		return (lastNodes);
+	}
+	
+	/**
+	 * Returns the deepest iteration completed by any thread in the last
+	 * search.
+	 */
+	public int getCompletedDepth() {
+		return (lastEngine.getCompletedDepth());
+	}
+	
+	/**
+	 * Returns the score of the move played from the last search, for the
+	 * side which was to move.
+	 */
+	public int getBestScore() {
+		return (lastEngine.getBestScore());
+	}
+	
+	public int getThreads() {
+		return (helpers.length + 1);
+	}
+	
+	public TranspositionTable getTranspositionTable() {
+		return (table);
+	}
+	
+	/**
+	 * Stops the search running on this engine, if any. The helper threads are
+	 * shared by all engines, so there is nothing else to release.
+	 */
+	@Override
+	public void shutdown() {
+		mainEngine.stopRequested = true;
+		
+		for(AlphaBetaEngine helper : helpers) {
+			helper.stopRequested = true;
+		}
+	}
+
+}
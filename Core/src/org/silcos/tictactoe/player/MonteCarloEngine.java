@@ -0,0 +1,465 @@
+package org.silcos.tictactoe.player;
+
+import org.silcos.tictactoe.MoveType;
+
+/**
+ * <p>
+ * Searches a <tt>BitBoard</tt> position using Monte Carlo Tree Search, for
+ * boards too large to be searched exhaustively. Each iteration selects a leaf
+ * of the tree using UCT, expands it, plays a random game (playout) from it
+ * and adds the result to the nodes on its path. The move of the most visited
+ * child of the root is played.
+ * 
+ * <p>
+ * The tree is held in primitive arrays allocated up-front, and the playouts play
+ * on a scratch <tt>BitBoard</tt>, so that an iteration allocates nothing. The
+ * children of a node occupy consecutive slots in the arrays.
+ * 
+ * <p>
+ * The tree is kept between moves: when the next search starts from a
+ * position reached by moves already in the tree, the subtree of that
+ * position becomes the new root. When the arrays are half full, the subtree
+ * is compacted into a spare set of arrays and the rest of the tree is
+ * dropped.
+ * 
+ * <p>
+ * The strength of the engine scales with its budget, which is the time
+ * passed to <tt>search</tt> and optionally a maximum no. of iterations.
+ * 
+ * @author Shukant Pal
+ */
+public class MonteCarloEngine implements SearchEngine {
+	
+	/**
+	 * The no. of nodes the tree can hold when no capacity is specified.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 18;
+	
+	/**
+	 * The exploration constant of UCT for rewards in [0, 1].
+	 */
+	static final double EXPLORATION = Math.sqrt(2);
+	
+	/**
+	 * The no. of iterations run between two checks of the deadline.
+	 */
+	private static final int DEADLINE_CHECK_INTERVAL = 64;
+	
+	private static final int UNEXPANDED = -1;
+	
+	private final int capacity;
+	private final int iterationBudget;
+	
+	/*
+	 * Node storage: the move that led to the node, the first of its
+	 * consecutive children & their count, its visits and its rewards. The
+	 * rewards are counted from the view of the side which made the move,
+	 * as 2 per win and 1 per draw.
+	 */
+	private int[] parent;
+	private int[] move;
+	private int[] firstChild;
+	private int[] childCount;
+	private int[] visits;
+	private int[] rewards;
+	private int nodeCount;
+	
+	private int[] spareParent;
+	private int[] spareMove;
+	private int[] spareFirstChild;
+	private int[] spareChildCount;
+	private int[] spareVisits;
+	private int[] spareRewards;
+	
+	private BitBoard treePosition;
+	private BitBoard scratch;
+	private PlayoutRunner runner;
+	private int[] path;
+	private int rootNode;
+	
+	private long iterations;
+	
+	/**
+	 * Instantiates a <tt>MonteCarloEngine</tt> with the default capacity,
+	 * whose searches are only bound by time.
+	 */
+	public MonteCarloEngine() {
+		this(DEFAULT_CAPACITY, 0);
+	}
+	
+	/**
+	 * Instantiates a <tt>MonteCarloEngine</tt>.
+	 * 
+	 * @param capacity - the maximum no. of nodes in the tree
+	 * @param iterationBudget - the maximum no. of iterations per search; 0,
+	 * 					if the searches are only bound by time.
+	 */
+	public MonteCarloEngine(int capacity, int iterationBudget) {
+		if(capacity < BitBoard.MAX_SIDE * BitBoard.MAX_SIDE + 1)
+			throw new IllegalArgumentException("The tree must be able to hold the root & its children");
+		if(iterationBudget < 0)
+			throw new IllegalArgumentException("The iteration budget cannot be negative");
+		
+		this.capacity = capacity;
+		this.iterationBudget = iterationBudget;
+		
+		parent = new int[capacity];
+		move = new int[capacity];
+		firstChild = new int[capacity];
+		childCount = new int[capacity];
+		visits = new int[capacity];
+		rewards = new int[capacity];
+	}
+	
+	private void resetTree(BitBoard root) {
+		if(scratch == null || scratch.masks != root.masks) {
+			treePosition = new BitBoard(root);
+			scratch = new BitBoard(root);
+			runner = new PlayoutRunner(root.getArea(), System.nanoTime() + System.identityHashCode(this));
+			path = new int[root.getArea() + 1];
+		} else {
+			treePosition.copyFrom(root);
+		}
+		
+		rootNode = 0;
+		nodeCount = 1;
+		parent[0] = -1;
+		move[0] = -1;
+		firstChild[0] = UNEXPANDED;
+		childCount[0] = 0;
+		visits[0] = 0;
+		rewards[0] = 0;
+	}
+	
+	/**
+	 * Moves the root of the tree to the node of the given position, if it is
+	 * reachable by moves already in the tree. Otherwise, the tree is reset.
+	 */
+	private void advanceRoot(BitBoard root) {
+		if(treePosition == null || treePosition.masks != root.masks
+				|| !advanceRootTo(root)) {
+			resetTree(root);
+			return;
+		}
+		
+		if(nodeCount > capacity / 2)
+			compact();
+	}
+	
+	private boolean advanceRootTo(BitBoard root) {
+		if((treePosition.oLow & ~root.oLow) != 0 || (treePosition.oHigh & ~root.oHigh) != 0
+				|| (treePosition.xLow & ~root.xLow) != 0 || (treePosition.xHigh & ~root.xHigh) != 0)
+			return (false);
+		
+		scratch.copyFrom(treePosition);
+		int node = rootNode;
+		
+		while(scratch.getEmptyArea() > root.getEmptyArea()) {
+			boolean oToMove = (scratch.getNextState() == MoveType.O);
+			long newLow = oToMove ? (root.oLow & ~scratch.oLow) : (root.xLow & ~scratch.xLow);
+			long newHigh = oToMove ? (root.oHigh & ~scratch.oHigh) : (root.xHigh & ~scratch.xHigh);
+			int next = -1;
+			
+			if(firstChild[node] == UNEXPANDED)
+				return (false);
+			
+			for(int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+				int cell = move[child];
+				
+				if((cell < 64 && (newLow & (1L << cell)) != 0)
+						|| (cell >= 64 && (newHigh & (1L << (cell - 64))) != 0)) {
+					next = child;
+					break;
+				}
+			}
+			
+			if(next < 0)
+				return (false);
+			
+			scratch.play(move[next]);
+			node = next;
+		}
+		
+		if(scratch.getPositionHash() != root.getPositionHash()
+				|| scratch.getNextState() != root.getNextState())
+			return (false);
+		
+		treePosition.copyFrom(root);
+		rootNode = node;
+		return (true);
+	}
+	
+	/**
+	 * Copies the subtree of the root into the spare arrays, breadth-first so
+	 * that siblings stay consecutive, and swaps them with the live arrays.
+	 */
+	private void compact() {
+		int copied = 1;
+		
+		if(spareParent == null) {
+			spareParent = new int[capacity];
+			spareMove = new int[capacity];
+			spareFirstChild = new int[capacity];
+			spareChildCount = new int[capacity];
+			spareVisits = new int[capacity];
+			spareRewards = new int[capacity];
+		}
+		
+		spareParent[0] = -1;
+		spareMove[0] = move[rootNode];
+		spareVisits[0] = visits[rootNode];
+		spareRewards[0] = rewards[rootNode];
+		
+		/* The spare "firstChild" slots temporarily hold the old index of each node */
+		spareFirstChild[0] = rootNode;
+		
+		for(int head = 0; head < copied; head++) {
+			int old = spareFirstChild[head];
+			
+			if(firstChild[old] == UNEXPANDED) {
+				spareFirstChild[head] = UNEXPANDED;
+				spareChildCount[head] = 0;
+				continue;
+			}
+			
+			int first = copied;
+			
+			for(int child = firstChild[old]; child < firstChild[old] + childCount[old]; child++) {
+				spareParent[copied] = head;
+				spareMove[copied] = move[child];
+				spareVisits[copied] = visits[child];
+				spareRewards[copied] = rewards[child];
+				spareFirstChild[copied] = child;
+				++(copied);
+			}
+			
+			spareFirstChild[head] = first;
+			spareChildCount[head] = childCount[old];
+		}
+		
+		swapArrays();
+		nodeCount = copied;
+		rootNode = 0;
+	}
+	
+	private void swapArrays() {
+		int[] swap;
+		
+		swap = parent; parent = spareParent; spareParent = swap;
+		swap = move; move = spareMove; spareMove = swap;
+		swap = firstChild; firstChild = spareFirstChild; spareFirstChild = swap;
+		swap = childCount; childCount = spareChildCount; spareChildCount = swap;
+		swap = visits; visits = spareVisits; spareVisits = swap;
+		swap = rewards; rewards = spareRewards; spareRewards = swap;
+	}
+	
+	@Override
+	public int search(BitBoard root, long timeBudget) {
+		if(root.getEmptyArea() == 0)
+			return (-1);
+		
+		advanceRoot(root);
+		
+		long deadline = System.nanoTime() + timeBudget * 1000000L;
+		iterations = 0;
+		
+		do {
+			for(int batch = 0; batch < DEADLINE_CHECK_INTERVAL; batch++) {
+				iterate();
+				++(iterations);
+				
+				if(iterations == iterationBudget)
+					break;
+			}
+		} while(iterations != iterationBudget && System.nanoTime() < deadline);
+		
+		return (bestMove());
+	}
+	
+	/**
+	 * Returns the move of the most visited child of the root.
+	 */
+	private int bestMove() {
+		int best = -1;
+		
+		if(firstChild[rootNode] == UNEXPANDED) {
+			scratch.copyFrom(treePosition);
+			scratch.getEmptyCells(runner.emptyCells);
+			return (runner.emptyCells[0]);
+		}
+		
+		for(int child = firstChild[rootNode]; child < firstChild[rootNode] + childCount[rootNode]; child++) {
+			if(best < 0 || visits[child] > visits[best])
+				best = child;
+		}
+		
+		return (move[best]);
+	}
+	
+	/**
+	 * Runs one iteration of selection, expansion, playout & backpropagation.
+	 */
+	private void iterate() {
+		BitBoard position = scratch;
+		int node = rootNode;
+		int depth = 0;
+		MoveType winner = MoveType.EMPTY;
+		boolean ended = false;
+		
+		position.copyFrom(treePosition);
+		path[depth++] = node;
+		
+		while(firstChild[node] != UNEXPANDED) {
+			node = select(node);
+			position.play(move[node]);
+			path[depth++] = node;
+			
+			if(position.isWinningMove(move[node])) {
+				winner = position.getState(move[node]);
+				ended = true;
+				break;
+			} else if(position.isFull()) {
+				ended = true;
+				break;
+			}
+		}
+		
+		if(!ended && (visits[node] > 0 || node == rootNode) && expand(node, position)) {
+			node = firstChild[node] + runner.nextRandom(childCount[node]);
+			position.play(move[node]);
+			path[depth++] = node;
+			
+			if(position.isWinningMove(move[node])) {
+				winner = position.getState(move[node]);
+				ended = true;
+			} else if(position.isFull()) {
+				ended = true;
+			}
+		}
+		
+		if(!ended)
+			winner = runner.playout(position);
+		
+		/* The side which made the move of each node, alternating down the path */
+		MoveType mover = treePosition.getNextState();
+		
+		for(int idx = 1; idx < depth; idx++) {
+			int pathNode = path[idx];
+			
+			++(visits[pathNode]);
+			
+			if(winner == mover)
+				rewards[pathNode] += 2;
+			else if(winner == MoveType.EMPTY)
+				rewards[pathNode] += 1;
+			
+			mover = opposite(mover);
+		}
+		
+		++(visits[path[0]]);
+	}
+	
+	private static MoveType opposite(MoveType side) {
+		return ((side == MoveType.O) ? MoveType.X : MoveType.O);
+	}
+	
+	/**
+	 * Selects the child of the given node which maximizes the UCT value. An
+	 * unvisited child is selected before any visited one.
+	 */
+	private int select(int node) {
+		int first = firstChild[node];
+		int last = first + childCount[node];
+		double logVisits = Math.log(visits[node]);
+		double bestValue = Double.NEGATIVE_INFINITY;
+		int best = first;
+		
+		for(int child = first; child < last; child++) {
+			int childVisits = visits[child];
+			
+			if(childVisits == 0)
+				return (child);
+			
+			double value = rewards[child] / (2.0 * childVisits)
+					+ EXPLORATION * Math.sqrt(logVisits / childVisits);
+			
+			if(value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		
+		return (best);
+	}
+	
+	/**
+	 * Adds a child for each empty square of the given position to the node.
+	 * 
+	 * @return - whether the node was expanded; false, if the tree is full.
+	 */
+	private boolean expand(int node, BitBoard position) {
+		int[] emptyCells = runner.emptyCells;
+		int count = position.getEmptyCells(emptyCells);
+		
+		if(nodeCount + count > capacity)
+			return (false);
+		
+		int first = nodeCount;
+		
+		for(int idx = 0; idx < count; idx++) {
+			int child = first + idx;
+			
+			parent[child] = node;
+			move[child] = emptyCells[idx];
+			firstChild[child] = UNEXPANDED;
+			childCount[child] = 0;
+			visits[child] = 0;
+			rewards[child] = 0;
+		}
+		
+		nodeCount += count;
+		firstChild[node] = first;
+		childCount[node] = count;
+		return (true);
+	}
+	
+	/**
+	 * Adds the visits of each child of the root to the entry of its move in
+	 * <tt>visitsByCell</tt>, so that the results of several engines searching
+	 * the same position can be merged.
+	 * 
+	 * @param visitsByCell - an array indexed by square
+	 */
+	void addRootVisits(int[] visitsByCell) {
+		if(firstChild[rootNode] == UNEXPANDED)
+			return;
+		
+		for(int child = firstChild[rootNode]; child < firstChild[rootNode] + childCount[rootNode]; child++) {
+			visitsByCell[move[child]] += visits[child];
+		}
+	}
+	
+	/**
+	 * Returns the no. of iterations run by the last search.
+	 */
+	public long getIterations() {
+		return (iterations);
+	}
+	
+	/**
+	 * Returns the no. of nodes in the tree, including those kept from
+	 * earlier searches.
+	 */
+	public int getTreeSize() {
+		return (nodeCount);
+	}
+	
+	/**
+	 * Returns the no. of visits of the root, which includes the iterations
+	 * of earlier searches whose subtree was reused.
+	 */
+	public int getRootVisits() {
+		return (visits[rootNode]);
+	}
+
+}
@@ -0,0 +1,188 @@
+package org.silcos.tictactoe.player;
+
+import java.util.Arrays;
+
+import org.silcos.tictactoe.MoveType;
+
+/**
+ * <p>
+ * Ranks the moves of each node searched by an <tt>AlphaBetaEngine</tt>, so
+ * that the moves most likely to cause a cutoff are searched first. The
+ * moves are ranked by, in order:
+ * <ol>
+ * 		<li> the best move stored in the transposition table
+ * 		<li> immediate wins, i.e. squares completing a line for the side to
+ * 			move
+ * 		<li> blocks, i.e. squares on which the opponent would complete a line
+ * 		<li> the two killer moves of the ply, which last caused a cutoff at
+ * 			the same ply in another branch
+ * 		<li> the history score of the square, raised by <tt>depth^2</tt>
+ * 			whenever a move on it causes a cutoff
+ * 		<li> a static score, adding for each line through the square which
+ * 			is clean for either side the weight of the squares that side
+ * 			holds on it
+ * </ol>
+ * 
+ * <p>
+ * Each rank is packed into a <tt>long</tt> key, and the moves are picked in
+ * the order of their keys by selection, one at a time; hence, the moves
+ * after a cutoff are never sorted. All buffers are allocated once, so that
+ * ordering does not allocate during the search.
+ * 
+ * @author Shukant Pal
+ */
+final class MoveOrdering {
+	
+	private static final int TABLE_MOVE = 6;
+	private static final int WIN = 5;
+	private static final int BLOCK = 4;
+	private static final int FIRST_KILLER = 3;
+	private static final int SECOND_KILLER = 2;
+	private static final int QUIET = 0;
+	
+	private static final int CATEGORY_SHIFT = 56;
+	private static final int HISTORY_SHIFT = 24;
+	private static final long HISTORY_LIMIT = (1L << 31) - 1;
+	private static final long STATIC_LIMIT = (1L << HISTORY_SHIFT) - 1;
+	
+	/**
+	 * The value of holding <tt>n - 1</tt> squares on a clean line, indexed
+	 * by <tt>n</tt>.
+	 */
+	private static final int[] lineWeights = new int[BitBoard.MAX_SIDE + 2];
+	
+	static {
+		for(int held = 1; held < lineWeights.length; held++) {
+			lineWeights[held] = 1 << (2 * (held - 1));
+		}
+	}
+	
+	private final BitBoard.LineMasks masks;
+	
+	private final long[][] keyBuffers;
+	private final int[][] killers;
+	private final long[] history;
+	
+	/**
+	 * Instantiates a <tt>MoveOrdering</tt> for the boards described by the
+	 * given line masks.
+	 */
+	MoveOrdering(BitBoard.LineMasks masks) {
+		this.masks = masks;
+		this.keyBuffers = new long[AlphaBetaEngine.MAX_PLY + 1][masks.area];
+		this.killers = new int[AlphaBetaEngine.MAX_PLY + 1][2];
+		this.history = new long[masks.area];
+		
+		for(int[] plyKillers : killers)
+			Arrays.fill(plyKillers, -1);
+	}
+	
+	/**
+	 * Prepares for a new search: the killers are cleared and the history
+	 * scores are halved, so that they follow the new root.
+	 */
+	void age() {
+		for(int[] plyKillers : killers)
+			Arrays.fill(plyKillers, -1);
+		
+		for(int cell = 0; cell < history.length; cell++)
+			history[cell] >>>= 1;
+	}
+	
+	/**
+	 * Ranks the given moves of the position at <tt>ply</tt>. The moves are
+	 * then picked in order using <tt>selectNext</tt>.
+	 * 
+	 * @param position - the position whose moves are ranked
+	 * @param moves - the empty squares to be ranked
+	 * @param count - the no. of moves
+	 * @param ply - the distance of the position from the root
+	 * @param tableMove - the move stored in the transposition table; <tt>
+	 * 			TranspositionTable.NO_MOVE</tt>, if there is none
+	 */
+	void rank(BitBoard position, int[] moves, int count, int ply, int tableMove) {
+		long[] keys = keyBuffers[ply];
+		boolean oToMove = position.getNextState() == MoveType.O;
+		long moverLow = oToMove ? position.oLow : position.xLow;
+		long moverHigh = oToMove ? position.oHigh : position.xHigh;
+		long otherLow = oToMove ? position.xLow : position.oLow;
+		long otherHigh = oToMove ? position.xHigh : position.oHigh;
+		
+		for(int idx = 0; idx < count; idx++) {
+			int move = moves[idx];
+			int category = QUIET;
+			long staticScore = 0;
+			
+			for(int line : masks.cellLines[move]) {
+				int moverHeld = Long.bitCount(moverLow & masks.lineLow[line])
+						+ Long.bitCount(moverHigh & masks.lineHigh[line]);
+				int otherHeld = Long.bitCount(otherLow & masks.lineLow[line])
+						+ Long.bitCount(otherHigh & masks.lineHigh[line]);
+				
+				if(otherHeld == 0) {
+					if(moverHeld == masks.winLength - 1)
+						category = WIN;
+					
+					staticScore += lineWeights[moverHeld + 1];
+				} else if(moverHeld == 0) {
+					if(otherHeld == masks.winLength - 1 && category < BLOCK)
+						category = BLOCK;
+					
+					staticScore += lineWeights[otherHeld + 1];
+				}
+			}
+			
+			if(move == tableMove)
+				category = TABLE_MOVE;
+			else if(category == QUIET && move == killers[ply][0])
+				category = FIRST_KILLER;
+			else if(category == QUIET && move == killers[ply][1])
+				category = SECOND_KILLER;
+			
+			keys[idx] = ((long) category << CATEGORY_SHIFT)
+					| (Math.min(history[move], HISTORY_LIMIT) << HISTORY_SHIFT)
+					| Math.min(staticScore, STATIC_LIMIT);
+		}
+	}
+	
+	/**
+	 * Swaps the best-ranked of the moves from <tt>idx</tt> onwards into
+	 * <tt>moves[idx]</tt>, and returns it. Moves with equal ranks keep the
+	 * order in which they were generated.
+	 */
+	int selectNext(int[] moves, int idx, int count, int ply) {
+		long[] keys = keyBuffers[ply];
+		int best = idx;
+		
+		for(int other = idx + 1; other < count; other++) {
+			if(keys[other] > keys[best])
+				best = other;
+		}
+		
+		if(best != idx) {
+			int move = moves[best];
+			long key = keys[best];
+			
+			System.arraycopy(moves, idx, moves, idx + 1, best - idx);
+			System.arraycopy(keys, idx, keys, idx + 1, best - idx);
+			moves[idx] = move;
+			keys[idx] = key;
+		}
+		
+		return (moves[idx]);
+	}
+	
+	/**
+	 * Records that <tt>move</tt> caused a cutoff at the given ply, with the
+	 * given depth left to search.
+	 */
+	void recordCutoff(int move, int ply, int depth) {
+		if(killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		
+		history[move] += depth * depth;
+	}
+
+}
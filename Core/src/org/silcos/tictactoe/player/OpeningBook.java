@@ -0,0 +1,384 @@
+package org.silcos.tictactoe.player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.silcos.tictactoe.MoveType;
+
+/**
+ * <p>
+ * Holds the best moves of the opening positions of one board size, found
+ * offline by deep searches, so that the first moves of a game (which cost
+ * the most to search) are played at once. A book is read from a binary file
+ * which is memory-mapped; a lookup is a binary search over the mapped file,
+ * which does not allocate.
+ * 
+ * <p>
+ * Positions are keyed by their canonical hash (see <tt>BitBoard.
+ * getCanonicalHash</tt>), so that one entry serves all positions symmetric
+ * to it, and the moves are stored in the canonical form. The side to move
+ * is not part of the key: a book holds games in which <b>O</b> moves first,
+ * and positions in which the other side is to move are not looked up.
+ * 
+ * <p>
+ * The file starts with a header of <tt>HEADER_BYTES</tt> bytes holding, as
+ * big-endian <tt>int</tt>s, <tt>MAGIC</tt>, <tt>VERSION</tt>, the side, the
+ * win length & the no. of entries. The entries follow, sorted by key; each
+ * of <tt>ENTRY_BYTES</tt> bytes holds the key (<tt>long</tt>), the move
+ * (<tt>short</tt>), the depth searched (<tt>short</tt>) and the score
+ * (<tt>int</tt>) found for the side to move.
+ * 
+ * @author Shukant Pal
+ */
+public final class OpeningBook {
+	
+	public static final int MAGIC = 0x54544F42;/* "TTOB" */
+	public static final int VERSION = 1;
+	public static final int HEADER_BYTES = 32;
+	public static final int ENTRY_BYTES = 16;
+	
+	/**
+	 * The system property naming the directory holding the books; <tt>
+	 * DEFAULT_DIRECTORY</tt>, if it is not set.
+	 */
+	public static final String DIRECTORY_PROPERTY = "tictactoe.books";
+	public static final String DEFAULT_DIRECTORY = "books";
+	
+	/**
+	 * Returned by <tt>probe</tt> when the position is not in the book.
+	 */
+	public static final int NO_MOVE = -1;
+	
+	private static final long UNLIMITED_TIME = TimeUnit.DAYS.toMillis(1);
+	
+	/**
+	 * The books opened by <tt>forBoard</tt>, including <tt>null</tt> for the
+	 * board sizes without a book.
+	 */
+	private static final Map<Integer, OpeningBook> cache = new HashMap<Integer, OpeningBook>();
+	
+	private final ByteBuffer entries;
+	private final int side;
+	private final int winLength;
+	private final int size;
+	private final int[][] symmetryMaps;
+	
+	private OpeningBook(ByteBuffer file) throws IOException {
+		if(file.capacity() < HEADER_BYTES || file.getInt(0) != MAGIC)
+			throw new IOException("Not an opening book");
+		if(file.getInt(4) != VERSION)
+			throw new IOException("Unsupported opening book version " + file.getInt(4));
+		
+		this.side = file.getInt(8);
+		this.winLength = file.getInt(12);
+		this.size = file.getInt(16);
+		
+		if(side < BitBoard.MIN_SIDE || side > BitBoard.MAX_SIDE || winLength < 1 || winLength > side)
+			throw new IOException("Invalid board size in opening book");
+		if(size < 0 || file.capacity() != HEADER_BYTES + (long) size * ENTRY_BYTES)
+			throw new IOException("Truncated opening book");
+		
+		this.entries = file;
+		this.symmetryMaps = Symmetry.mapsFor(side);
+	}
+	
+	/**
+	 * Opens the book in the given file by mapping it into memory.
+	 * 
+	 * @throws IOException - if the file cannot be read or is not a valid book
+	 */
+	public static OpeningBook open(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			
+			file.order(ByteOrder.BIG_ENDIAN);
+			return (new OpeningBook(file));
+		}
+	}
+	
+	/**
+	 * Returns the name of the file holding the book of the given board size,
+	 * e.g. <tt>"7x7-7.book"</tt>.
+	 */
+	public static String fileName(int side, int winLength) {
+		return (side + "x" + side + "-" + winLength + ".book");
+	}
+	
+	/**
+	 * Returns the book of the given board size from the books directory (see
+	 * <tt>DIRECTORY_PROPERTY</tt>), opening it on the first call. A book
+	 * which cannot be opened is reported and treated as missing.
+	 * 
+	 * @return - the book; <tt>null</tt>, if there is none for the board size.
+	 */
+	public static OpeningBook forBoard(int side, int winLength) {
+		Integer key = side * 1024 + winLength;
+		
+		synchronized(cache) {
+			if(cache.containsKey(key))
+				return (cache.get(key));
+			
+			Path path = Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY),
+					fileName(side, winLength));
+			OpeningBook book = null;
+			
+			if(Files.isRegularFile(path)) {
+				try {
+					book = open(path);
+					
+					if(book.side != side || book.winLength != winLength) {
+						System.err.println("Warning *:* The opening book " + path + " is for another board size");
+						book = null;
+					}
+				} catch(IOException e) {
+					System.err.println("Warning *:* The opening book " + path + " could not be opened: "
+							+ e.getMessage());
+				}
+			}
+			
+			cache.put(key, book);
+			return (book);
+		}
+	}
+	
+	public int getSide() {
+		return (side);
+	}
+	
+	public int getWinLength() {
+		return (winLength);
+	}
+	
+	/**
+	 * Returns the no. of positions in this book.
+	 */
+	public int size() {
+		return (size);
+	}
+	
+	/**
+	 * Returns the index of the entry with the given key; -1, if there is
+	 * none.
+	 */
+	private int find(long key) {
+		int low = 0;
+		int high = size - 1;
+		
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleKey = entries.getLong(HEADER_BYTES + middle * ENTRY_BYTES);
+			
+			if(middleKey < key)
+				low = middle + 1;
+			else if(middleKey > key)
+				high = middle - 1;
+			else
+				return (middle);
+		}
+		
+		return (-1);
+	}
+	
+	/**
+	 * Looks up the book move for the given position, mapped from the
+	 * canonical form onto the position itself.
+	 * 
+	 * @param position - the position in which a move is to be made
+	 * @return - the index of the move; <tt>NO_MOVE</tt>, if the book does not
+	 * 			hold the position.
+	 */
+	public int probe(BitBoard position) {
+		if(position.getSide() != side || position.getWinLength() != winLength)
+			return (NO_MOVE);
+		
+		int oCount = Long.bitCount(position.oLow) + Long.bitCount(position.oHigh);
+		int xCount = Long.bitCount(position.xLow) + Long.bitCount(position.xHigh);
+		MoveType mover = (oCount == xCount) ? MoveType.O : MoveType.X;
+		
+		if(position.getNextState() != mover)
+			return (NO_MOVE);
+		
+		int transform = position.getCanonicalTransform();
+		int index = find(position.getSymmetricHash(transform));
+		
+		if(index < 0)
+			return (NO_MOVE);
+		
+		int move = entries.getShort(HEADER_BYTES + index * ENTRY_BYTES + 8);
+		
+		if(move < 0 || move >= position.getArea())
+			return (NO_MOVE);
+		
+		move = symmetryMaps[Symmetry.inverse(transform)][move];
+		
+		return (position.isEmpty(move) ? move : NO_MOVE);
+	}
+	
+	/**
+	 * Collects the entries of an opening book and writes them to a file.
+	 * Entries are added for positions in any orientation, and are stored in
+	 * the canonical form.
+	 * 
+	 * @author Shukant Pal
+	 */
+	public static final class Builder {
+		
+		private final int side;
+		private final int winLength;
+		private final int[][] symmetryMaps;
+		private final TreeMap<Long, long[]> entries = new TreeMap<Long, long[]>();
+		
+		public Builder(int side, int winLength) {
+			BitBoard.masksFor(side, winLength);/* Validates the size */
+			
+			this.side = side;
+			this.winLength = winLength;
+			this.symmetryMaps = Symmetry.mapsFor(side);
+		}
+		
+		/**
+		 * Adds the best move of the given position, replacing any entry of a
+		 * symmetric position.
+		 * 
+		 * @param position - a position in which <b>O</b> moved first
+		 * @param move - the best move found for the side to move
+		 * @param depth - the depth searched to find the move
+		 * @param score - the score of the move for the side to move
+		 */
+		public void add(BitBoard position, int move, int depth, int score) {
+			if(position.getSide() != side || position.getWinLength() != winLength)
+				throw new IllegalArgumentException("The position is not on a " + side + "x" + side
+						+ " board with win length " + winLength);
+			if(move < 0 || move >= position.getArea() || !position.isEmpty(move))
+				throw new IllegalArgumentException("The move must be an empty square");
+			
+			int transform = position.getCanonicalTransform();
+			
+			entries.put(position.getSymmetricHash(transform),
+					new long[] { symmetryMaps[transform][move], depth, score });
+		}
+		
+		public int size() {
+			return (entries.size());
+		}
+		
+		/**
+		 * Writes the book, replacing the given file.
+		 */
+		public void write(Path path) throws IOException {
+			ByteBuffer file = ByteBuffer.allocate(HEADER_BYTES + entries.size() * ENTRY_BYTES);
+			
+			file.putInt(MAGIC).putInt(VERSION).putInt(side).putInt(winLength).putInt(entries.size());
+			file.position(HEADER_BYTES);
+			
+			for(Map.Entry<Long, long[]> entry : entries.entrySet()) {
+				long[] value = entry.getValue();
+				
+				file.putLong(entry.getKey());
+				file.putShort((short) value[0]);
+				file.putShort((short) value[1]);
+				file.putInt((int) value[2]);
+			}
+			
+			file.flip();
+			
+			try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while(file.hasRemaining())
+					channel.write(file);
+			}
+		}
+	
+	}
+	
+	/**
+	 * Builds the book of a board size by searching every position reachable
+	 * within <tt>plies</tt> moves from the empty board, up to symmetry, with
+	 * an <tt>AlphaBetaEngine</tt>. Positions in which a side has won are
+	 * left out.
+	 * 
+	 * @param side - the side of the board
+	 * @param winLength - the no. of squares in a row needed to win
+	 * @param plies - the no. of moves covered by the book
+	 * @param depth - the depth searched for each position
+	 * @param timeBudget - the time given to each search, in milliseconds
+	 */
+	public static Builder generate(int side, int winLength, int plies, int depth, long timeBudget) {
+		Builder builder = new Builder(side, winLength);
+		AlphaBetaEngine engine = new AlphaBetaEngine(new TranspositionTable(TranspositionTable.DEFAULT_BUDGET * 16));
+		List<BitBoard> frontier = new ArrayList<BitBoard>();
+		
+		engine.setMaxDepth(depth);
+		frontier.add(new BitBoard(side, winLength));
+		
+		for(int ply = 0; ply < plies && !frontier.isEmpty(); ply++) {
+			Map<Long, BitBoard> next = new HashMap<Long, BitBoard>();
+			
+			for(BitBoard position : frontier) {
+				int move = engine.search(position, timeBudget);
+				
+				if(move < 0)
+					continue;
+				
+				builder.add(position, move, engine.getCompletedDepth(), engine.getBestScore());
+				
+				if(ply + 1 == plies)
+					continue;
+				
+				for(int cell = 0; cell < position.getArea(); cell++) {
+					if(!position.isEmpty(cell))
+						continue;
+					
+					BitBoard child = new BitBoard(position);
+					child.play(cell);
+					
+					if(!child.isWinningMove(cell) && !child.isFull())
+						next.putIfAbsent(child.getCanonicalHash(), child);
+				}
+			}
+			
+			System.out.println("Ply " + ply + ": " + frontier.size() + " positions, "
+					+ builder.size() + " entries");
+			frontier = new ArrayList<BitBoard>(next.values());
+		}
+		
+		return (builder);
+	}
+	
+	/**
+	 * Builds a book and writes it to the books directory.
+	 * 
+	 * @param args - the side, the win length, the no. of plies, the depth of
+	 * 			each search and the directory; 7, 7, 2, 8 & <tt>
+	 * 			DEFAULT_DIRECTORY</tt> by default
+	 */
+	public static void main(String[] args) throws IOException {
+		int side = (args.length > 0) ? Integer.parseInt(args[0]) : 7;
+		int winLength = (args.length > 1) ? Integer.parseInt(args[1]) : side;
+		int plies = (args.length > 2) ? Integer.parseInt(args[2]) : 2;
+		int depth = (args.length > 3) ? Integer.parseInt(args[3]) : 8;
+		Path directory = Paths.get((args.length > 4) ? args[4] : DEFAULT_DIRECTORY);
+		
+		Files.createDirectories(directory);
+		
+		Builder builder = generate(side, winLength, plies, depth, UNLIMITED_TIME);
+		Path path = directory.resolve(fileName(side, winLength));
+		
+		builder.write(path);
+		System.out.println("Wrote " + builder.size() + " positions to " + path);
+	}
+
+}
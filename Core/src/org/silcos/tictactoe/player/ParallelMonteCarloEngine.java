@@ -0,0 +1,456 @@
+package org.silcos.tictactoe.player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.silcos.tictactoe.MoveType;
+
+/**
+ * <p>
+ * Runs Monte Carlo Tree Search on several threads of a dedicated pool, so
+ * that a search uses all the cores given to it. Two kinds of parallelism
+ * are supported:
+ * <ul>
+ * 		<li> <tt>TREE</tt>: all threads grow one shared tree. The statistics
+ * 			of each node are packed into one <tt>long</tt> and updated with
+ * 			atomic adds, and a thread descending through a node adds a <i>
+ * 			virtual loss</i> to it so that the other threads spread out to
+ * 			other branches. Nodes are expanded by the thread that claims
+ * 			them first; no locks are taken.
+ * 		<li> <tt>ROOT</tt>: each thread grows its own tree using a <tt>
+ * 			MonteCarloEngine</tt>, and the visits of the moves at the root
+ * 			are summed up across the trees when the search ends.
+ * </ul>
+ * 
+ * <p>
+ * In <tt>ROOT</tt> mode, each tree is reused between moves as done by <tt>
+ * MonteCarloEngine</tt>. The shared tree of <tt>TREE</tt> mode is rebuilt
+ * on each search.
+ * 
+ * <p>
+ * The throughput of both modes can be measured using <tt>measurePlayoutRate
+ * </tt>.
+ * 
+ * @author Shukant Pal
+ */
+public class ParallelMonteCarloEngine implements SearchEngine {
+	
+	public enum Parallelism {
+		TREE,
+		ROOT
+	}
+	
+	/**
+	 * The no. of visits added to a node by a thread descending through it,
+	 * which are taken back when the result of its playout is added.
+	 */
+	static final int VIRTUAL_LOSS = 3;
+	
+	private static final int DEADLINE_CHECK_INTERVAL = 64;
+	
+	private static final int UNEXPANDED = -1;
+	private static final int EXPANDING = -2;
+	
+	/**
+	 * Searches the shared tree from one thread of the pool. Each worker owns
+	 * its scratch position, path and playout runner.
+	 * 
+	 * @author Shukant Pal
+	 */
+	private class TreeWorker implements Callable<Long> {
+		
+		private final BitBoard position;
+		private final PlayoutRunner runner;
+		private final int[] path;
+		
+		TreeWorker(BitBoard root, long seed) {
+			this.position = new BitBoard(root);
+			this.runner = new PlayoutRunner(root.getArea(), seed);
+			this.path = new int[root.getArea() + 1];
+		}
+		
+		@Override
+		public Long call() {
+			long done = 0;
+			
+			while(!stopped()) {
+				for(int batch = 0; batch < DEADLINE_CHECK_INTERVAL; batch++) {
+					if(iterationBudget > 0 && iterations.getAndIncrement() >= iterationBudget) {
+						return (done);
+					}
+					
+					iterate();
+					++(done);
+				}
+			}
+			
+			return (done);
+		}
+		
+		private void iterate() {
+			int node = 0;
+			int depth = 0;
+			MoveType winner = MoveType.EMPTY;
+			boolean ended = false;
+			
+			position.copyFrom(treePosition);
+			path[depth++] = node;
+			stats.addAndGet(node, (long) VIRTUAL_LOSS << 32);
+			
+			while(firstChild.get(node) >= 0) {
+				node = select(node);
+				position.play(move[node]);
+				path[depth++] = node;
+				stats.addAndGet(node, (long) VIRTUAL_LOSS << 32);
+				
+				if(position.isWinningMove(move[node])) {
+					winner = position.getState(move[node]);
+					ended = true;
+					break;
+				} else if(position.isFull()) {
+					ended = true;
+					break;
+				}
+			}
+			
+			if(!ended && visitsOf(stats.get(node)) > VIRTUAL_LOSS && expand(node)) {
+				int first = firstChild.get(node);
+				
+				node = first + runner.nextRandom(childCount[node]);
+				position.play(move[node]);
+				path[depth++] = node;
+				stats.addAndGet(node, (long) VIRTUAL_LOSS << 32);
+				
+				if(position.isWinningMove(move[node])) {
+					winner = position.getState(move[node]);
+					ended = true;
+				} else if(position.isFull()) {
+					ended = true;
+				}
+			}
+			
+			if(!ended)
+				winner = runner.playout(position);
+			
+			/* The side which made the move of each node, alternating down the path */
+			MoveType mover = treePosition.getNextState();
+			
+			for(int idx = 1; idx < depth; idx++) {
+				int reward = (winner == mover) ? 2 : (winner == MoveType.EMPTY ? 1 : 0);
+				
+				stats.addAndGet(path[idx], ((long) (1 - VIRTUAL_LOSS) << 32) + reward);
+				mover = (mover == MoveType.O) ? MoveType.X : MoveType.O;
+			}
+			
+			stats.addAndGet(0, (long) (1 - VIRTUAL_LOSS) << 32);
+		}
+		
+		/**
+		 * Claims the given node for expansion, and adds its children. If
+		 * another thread has claimed it or the tree is full, the node is left
+		 * as a leaf.
+		 */
+		private boolean expand(int node) {
+			if(!firstChild.compareAndSet(node, UNEXPANDED, EXPANDING))
+				return (false);
+			
+			int[] emptyCells = runner.emptyCells;
+			int count = position.getEmptyCells(emptyCells);
+			int first = nodeCount.getAndAdd(count);
+			
+			if(first + count > capacity) {
+				firstChild.set(node, UNEXPANDED);
+				return (false);
+			}
+			
+			for(int idx = 0; idx < count; idx++) {
+				move[first + idx] = emptyCells[idx];
+				stats.set(first + idx, 0L);
+				firstChild.set(first + idx, UNEXPANDED);
+			}
+			
+			childCount[node] = count;
+			firstChild.set(node, first);
+			return (true);
+		}
+	
+	}
+	
+	private final Parallelism parallelism;
+	private final int threads;
+	private final int capacity;
+	private final int iterationBudget;
+	private final ExecutorService pool;
+	
+	/* Shared tree of TREE mode */
+	private final int[] move;
+	private final int[] childCount;
+	private final AtomicIntegerArray firstChild;
+	private final AtomicLongArray stats;
+	private final AtomicInteger nodeCount;
+	private final AtomicLong iterations;
+	private BitBoard treePosition;
+	
+	/* Independent trees of ROOT mode */
+	private final MonteCarloEngine[] rootEngines;
+	private int[] mergedVisits;
+	
+	private volatile long deadline;
+	private long lastIterations;
+	
+	/**
+	 * Instantiates a <tt>ParallelMonteCarloEngine</tt> using all available
+	 * processors, whose searches are only bound by time.
+	 * 
+	 * @param parallelism - how the threads share the search
+	 */
+	public ParallelMonteCarloEngine(Parallelism parallelism) {
+		this(parallelism, Runtime.getRuntime().availableProcessors(),
+				MonteCarloEngine.DEFAULT_CAPACITY, 0);
+	}
+	
+	/**
+	 * Instantiates a <tt>ParallelMonteCarloEngine</tt>.
+	 * 
+	 * @param parallelism - how the threads share the search
+	 * @param threads - the no. of threads searching in parallel
+	 * @param capacity - the maximum no. of nodes of the shared tree, or of
+	 * 					each tree in <tt>ROOT</tt> mode
+	 * @param iterationBudget - the maximum no. of iterations per search,
+	 * 					across all threads; 0, if the searches are only bound by
+	 * 					time.
+	 */
+	public ParallelMonteCarloEngine(Parallelism parallelism, int threads, int capacity,
+			int iterationBudget) {
+		if(threads < 1)
+			throw new IllegalArgumentException("At least one thread is required");
+		if(capacity < BitBoard.MAX_SIDE * BitBoard.MAX_SIDE + 1)
+			throw new IllegalArgumentException("The tree must be able to hold the root & its children");
+		
+		this.parallelism = parallelism;
+		this.threads = threads;
+		this.capacity = capacity;
+		this.iterationBudget = iterationBudget;
+		this.iterations = new AtomicLong();
+		this.pool = Executors.newFixedThreadPool(threads, (Runnable task) -> {
+			Thread worker = new Thread(task, "ParallelMonteCarloEngine-worker");
+			worker.setDaemon(true);
+			return (worker);
+		});
+		
+		if(parallelism == Parallelism.TREE) {
+			move = new int[capacity];
+			childCount = new int[capacity];
+			firstChild = new AtomicIntegerArray(capacity);
+			stats = new AtomicLongArray(capacity);
+			nodeCount = new AtomicInteger();
+			rootEngines = null;
+		} else {
+			move = null;
+			childCount = null;
+			firstChild = null;
+			stats = null;
+			nodeCount = null;
+			rootEngines = new MonteCarloEngine[threads];
+			
+			for(int idx = 0; idx < threads; idx++) {
+				rootEngines[idx] = new MonteCarloEngine(capacity,
+						iterationBudget == 0 ? 0 : Math.max(1, iterationBudget / threads));
+			}
+		}
+	}
+	
+	private static int visitsOf(long stat) {
+		return ((int) (stat >> 32));
+	}
+	
+	private static int rewardsOf(long stat) {
+		return ((int) stat);
+	}
+	
+	private boolean stopped() {
+		return (System.nanoTime() >= deadline);
+	}
+	
+	/**
+	 * Selects the child of the given node of the shared tree which maximizes
+	 * the UCT value, counting virtual losses as visits without reward.
+	 */
+	private int select(int node) {
+		int first = firstChild.get(node);
+		int last = first + childCount[node];
+		double logVisits = Math.log(Math.max(1, visitsOf(stats.get(node))));
+		double bestValue = Double.NEGATIVE_INFINITY;
+		int best = first;
+		
+		for(int child = first; child < last; child++) {
+			long stat = stats.get(child);
+			int childVisits = visitsOf(stat);
+			
+			if(childVisits == 0)
+				return (child);
+			
+			double value = rewardsOf(stat) / (2.0 * childVisits)
+					+ MonteCarloEngine.EXPLORATION * Math.sqrt(logVisits / childVisits);
+			
+			if(value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		
+		return (best);
+	}
+	
+	@Override
+	public int search(BitBoard root, long timeBudget) {
+		if(root.getEmptyArea() == 0)
+			return (-1);
+		
+		deadline = System.nanoTime() + timeBudget * 1000000L;
+		
+		if(parallelism == Parallelism.TREE)
+			return (searchTree(root));
+		else
+			return (searchRoots(root, timeBudget));
+	}
+	
+	private int searchTree(BitBoard root) {
+		treePosition = new BitBoard(root);
+		nodeCount.set(1);
+		firstChild.set(0, UNEXPANDED);
+		stats.set(0, 0L);
+		iterations.set(0);
+		
+		List<TreeWorker> workers = new ArrayList<TreeWorker>(threads);
+		
+		for(int idx = 0; idx < threads; idx++) {
+			workers.add(new TreeWorker(root, System.nanoTime() + 31 * idx));
+		}
+		
+		lastIterations = 0;
+		
+		for(Future<Long> result : invokeAll(workers)) {
+			lastIterations += get(result);
+		}
+		
+		int first = firstChild.get(0);
+		
+		if(first < 0) {
+			int[] emptyCells = new int[root.getArea()];
+			root.getEmptyCells(emptyCells);
+			return (emptyCells[0]);
+		}
+		
+		int best = first;
+		
+		for(int child = first; child < first + childCount[0]; child++) {
+			if(visitsOf(stats.get(child)) > visitsOf(stats.get(best)))
+				best = child;
+		}
+		
+		return (move[best]);
+	}
+	
+	private int searchRoots(BitBoard root, long timeBudget) {
+		List<Callable<Long>> searches = new ArrayList<Callable<Long>>(threads);
+		
+		for(MonteCarloEngine engine : rootEngines) {
+			searches.add(() -> {
+				engine.search(root, timeBudget);
+				return (engine.getIterations());
+			});
+		}
+		
+		lastIterations = 0;
+		
+		for(Future<Long> result : invokeAll(searches)) {
+			lastIterations += get(result);
+		}
+		
+		if(mergedVisits == null || mergedVisits.length != root.getArea())
+			mergedVisits = new int[root.getArea()];
+		else
+			Arrays.fill(mergedVisits, 0);
+		
+		for(MonteCarloEngine engine : rootEngines) {
+			engine.addRootVisits(mergedVisits);
+		}
+		
+		int best = -1;
+		
+		for(int cell = 0; cell < mergedVisits.length; cell++) {
+			if(root.isEmpty(cell) && (best < 0 || mergedVisits[cell] > mergedVisits[best]))
+				best = cell;
+		}
+		
+		return (best);
+	}
+	
+	private <T> List<Future<T>> invokeAll(List<? extends Callable<T>> tasks) {
+		try {
+			return (pool.invokeAll(tasks));
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while searching", e);
+		}
+	}
+	
+	private static long get(Future<Long> result) {
+		try {
+			return (result.get());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while searching", e);
+		} catch(ExecutionException e) {
+			throw new IllegalStateException("A search thread failed", e.getCause());
+		}
+	}
+	
+	/**
+	 * Returns the no. of iterations (i.e. playouts) run by the last search,
+	 * across all threads.
+	 */
+	public long getIterations() {
+		return (lastIterations);
+	}
+	
+	public Parallelism getParallelism() {
+		return (parallelism);
+	}
+	
+	public int getThreads() {
+		return (threads);
+	}
+	
+	/**
+	 * Stops the threads of this engine. It must not be used afterwards.
+	 */
+	@Override
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+	
+	/**
+	 * Measures the no. of playouts per second run by this engine when
+	 * searching an empty board of the given side for the given time.
+	 * 
+	 * @param side - the side of the board to be searched
+	 * @param millis - the time given to the search, in milliseconds
+	 */
+	public double measurePlayoutRate(int side, long millis) {
+		search(new BitBoard(side), millis);
+		return (getIterations() * 1000.0 / millis);
+	}
+
+}
@@ -0,0 +1,250 @@
+package org.silcos.tictactoe.player;
+
+import org.silcos.tictactoe.MoveType;
+
+/**
+ * <p>
+ * Holds the game-theoretic value and the optimal moves of every reachable
+ * 3x3 position, so that a perfect move is found by a single array lookup.
+ * The table is built once, when this class is loaded, by solving the game
+ * from the empty board; it holds the 4,520 positions in which the game has
+ * not ended yet.
+ * 
+ * <p>
+ * Positions are indexed from the point of view of the side to move: each
+ * square is a ternary digit which is 1 if the side to move holds it, and 2
+ * if the other side does. Since O and X play by the same rules, one table
+ * serves both sides, whichever of them moved first. The ternary index of
+ * a 9-bit mask is read from a 512-entry table.
+ * 
+ * <p>
+ * Each entry is packed into one <tt>short</tt>:
+ * <ul>
+ * 		<li> bits 0-8: the mask of optimal moves
+ * 		<li> bits 9-10: the value, plus one (0 marks unreachable positions)
+ * 		<li> bits 11-14: the no. of plies until the game ends under optimal
+ * 			play
+ * </ul>
+ * Among the moves with the best value, only those winning the fastest or
+ * losing the slowest are optimal.
+ * 
+ * @author Shukant Pal
+ */
+public final class PerfectPlayTable {
+	
+	/**
+	 * The side of the boards covered by this table.
+	 */
+	public static final int SIDE = 3;
+	
+	public static final int WIN = 1;
+	public static final int DRAW = 0;
+	public static final int LOSS = -1;
+	
+	private static final int AREA = SIDE * SIDE;
+	private static final int AREA_MASK = (1 << AREA) - 1;
+	private static final int POSITIONS = 19683;/* 3^9 */
+	
+	private static final int VALUE_SHIFT = 9;
+	private static final int PLIES_SHIFT = 11;
+	
+	private static final int[] LINES = {
+		0007, 0070, 0700,/* Rows */
+		0111, 0222, 0444,/* Columns */
+		0421, 0124/* Diagonals */
+	};
+	
+	/**
+	 * The ternary value of each 9-bit mask, i.e. the sum of <tt>3^i</tt>
+	 * over each bit <tt>i</tt> set in it.
+	 */
+	private static final short[] ternary = new short[1 << AREA];
+	
+	private static final short[] entries = new short[POSITIONS];
+	
+	private static int reachable;
+	
+	static {
+		for(int mask = 1; mask <= AREA_MASK; mask++) {
+			int low = Integer.numberOfTrailingZeros(mask);
+			int power = 1;
+			
+			for(int digit = 0; digit < low; digit++)
+				power *= 3;
+			
+			ternary[mask] = (short) (ternary[mask & (mask - 1)] + power);
+		}
+		
+		solve(0, 0);
+	}
+	
+	private PerfectPlayTable() {
+	}
+	
+	private static int indexOf(int moverMask, int otherMask) {
+		return (ternary[moverMask] + 2 * ternary[otherMask]);
+	}
+	
+	private static boolean hasLine(int mask) {
+		for(int line : LINES) {
+			if((mask & line) == line)
+				return (true);
+		}
+		
+		return (false);
+	}
+	
+	/**
+	 * Solves the position in which the side to move holds <tt>moverMask</tt>
+	 * & the other side holds <tt>otherMask</tt>, and neither has captured a
+	 * line. Returns its entry.
+	 */
+	private static int solve(int moverMask, int otherMask) {
+		int index = indexOf(moverMask, otherMask);
+		
+		if(entries[index] != 0)
+			return (entries[index]);
+		
+		int empty = AREA_MASK & ~(moverMask | otherMask);
+		int bestValue = LOSS - 1;
+		int bestPlies = 0;
+		int bestMoves = 0;
+		
+		for(int moves = empty; moves != 0; moves &= moves - 1) {
+			int move = moves & -moves;
+			int after = moverMask | move;
+			int value;
+			int plies;
+			
+			if(hasLine(after)) {
+				value = WIN;
+				plies = 1;
+			} else if((after | otherMask) == AREA_MASK) {
+				value = DRAW;
+				plies = 1;
+			} else {
+				int reply = solve(otherMask, after);
+				
+				value = -valueOf(reply);
+				plies = pliesOf(reply) + 1;
+			}
+			
+			if(value > bestValue || (value == bestValue && isFaster(value, plies, bestPlies))) {
+				bestValue = value;
+				bestPlies = plies;
+				bestMoves = move;
+			} else if(value == bestValue && plies == bestPlies) {
+				bestMoves |= move;
+			}
+		}
+		
+		int entry = bestMoves | ((bestValue + 1) << VALUE_SHIFT) | (bestPlies << PLIES_SHIFT);
+		
+		entries[index] = (short) entry;
+		++(reachable);
+		
+		return (entry);
+	}
+	
+	/**
+	 * Returns whether ending the game in <tt>plies</tt> is better than in
+	 * <tt>bestPlies</tt>, for a game of the given value: wins should come
+	 * soon and losses late.
+	 */
+	private static boolean isFaster(int value, int plies, int bestPlies) {
+		return ((value == LOSS) ? plies > bestPlies : plies < bestPlies);
+	}
+	
+	private static int valueOf(int entry) {
+		return (((entry >>> VALUE_SHIFT) & 3) - 1);
+	}
+	
+	private static int pliesOf(int entry) {
+		return (entry >>> PLIES_SHIFT);
+	}
+	
+	/**
+	 * Returns the entry of the given position; zero, if it is not a 3x3
+	 * position reachable in a game which has not ended.
+	 */
+	private static int entryOf(BitBoard position) {
+		if(position.getSide() != SIDE || position.getWinLength() != SIDE)
+			return (0);
+		
+		int oMask = (int) position.oLow;
+		int xMask = (int) position.xLow;
+		
+		if(position.getNextState() == MoveType.O)
+			return (entries[indexOf(oMask, xMask)]);
+		else
+			return (entries[indexOf(xMask, oMask)]);
+	}
+	
+	/**
+	 * Returns whether the table holds the given position, i.e. it is a 3x3
+	 * position which can arise in a game which has not ended yet.
+	 */
+	public static boolean contains(BitBoard position) {
+		return (entryOf(position) != 0);
+	}
+	
+	/**
+	 * Returns the value of the given position for the side to move: <tt>WIN
+	 * </tt>, <tt>DRAW</tt> or <tt>LOSS</tt>.
+	 * 
+	 * @throws IllegalArgumentException - if the table does not hold the
+	 * 			position
+	 */
+	public static int getValue(BitBoard position) {
+		return (valueOf(checkedEntryOf(position)));
+	}
+	
+	/**
+	 * Returns the no. of plies left in the game when both sides play the
+	 * optimal moves from the given position.
+	 * 
+	 * @throws IllegalArgumentException - if the table does not hold the
+	 * 			position
+	 */
+	public static int getPliesToEnd(BitBoard position) {
+		return (pliesOf(checkedEntryOf(position)));
+	}
+	
+	/**
+	 * Returns the mask of the optimal moves in the given position; the bit
+	 * <tt>row * 3 + column</tt> is set for each optimal square.
+	 * 
+	 * @throws IllegalArgumentException - if the table does not hold the
+	 * 			position
+	 */
+	public static int getOptimalMoves(BitBoard position) {
+		return (checkedEntryOf(position) & AREA_MASK);
+	}
+	
+	/**
+	 * Returns the first optimal move in the given position.
+	 * 
+	 * @throws IllegalArgumentException - if the table does not hold the
+	 * 			position
+	 */
+	public static int getBestMove(BitBoard position) {
+		return (Integer.numberOfTrailingZeros(getOptimalMoves(position)));
+	}
+	
+	private static int checkedEntryOf(BitBoard position) {
+		int entry = entryOf(position);
+		
+		if(entry == 0)
+			throw new IllegalArgumentException("The position is not a reachable 3x3 position");
+		
+		return (entry);
+	}
+	
+	/**
+	 * Returns the no. of positions held by the table.
+	 */
+	public static int size() {
+		return (reachable);
+	}
+
+}
@@ -0,0 +1,69 @@
+package org.silcos.tictactoe.player;
+
+import org.silcos.tictactoe.MoveType;
+
+/**
+ * Plays random games on a <tt>BitBoard</tt> for the Monte Carlo engines. It
+ * owns its buffer of empty squares and its random generator, so that each
+ * search thread can use its own <tt>PlayoutRunner</tt> without allocating
+ * or contending on shared state.
+ * 
+ * @author Shukant Pal
+ */
+final class PlayoutRunner {
+	
+	/**
+	 * Scratch buffer of empty squares, also used by the engines to expand
+	 * nodes.
+	 */
+	final int[] emptyCells;
+	
+	private long randomState;
+	
+	/**
+	 * Instantiates a <tt>PlayoutRunner</tt> for boards of the given area.
+	 * 
+	 * @param area - the no. of squares on the board
+	 * @param seed - the seed of the random generator
+	 */
+	PlayoutRunner(int area, long seed) {
+		this.emptyCells = new int[area];
+		this.randomState = (seed * 0x9E3779B97F4A7C15L) | 1;
+	}
+	
+	/**
+	 * Returns a uniformly distributed random integer in <tt>[0, bound)</tt>,
+	 * using a xorshift generator.
+	 */
+	int nextRandom(int bound) {
+		randomState ^= randomState << 13;
+		randomState ^= randomState >>> 7;
+		randomState ^= randomState << 17;
+		
+		return ((int) (((randomState >>> 33) * bound) >>> 31));
+	}
+	
+	/**
+	 * Plays random moves on the given position until a side wins or the
+	 * board is full.
+	 * 
+	 * @return - the winner; <tt>MoveType.EMPTY</tt>, if the game is drawn.
+	 */
+	MoveType playout(BitBoard position) {
+		int count = position.getEmptyCells(emptyCells);
+		
+		while(count > 0) {
+			int pick = nextRandom(count);
+			int cell = emptyCells[pick];
+			
+			emptyCells[pick] = emptyCells[--count];
+			position.play(cell);
+			
+			if(position.isWinningMove(cell))
+				return (position.getState(cell));
+		}
+		
+		return (MoveType.EMPTY);
+	}
+
+}
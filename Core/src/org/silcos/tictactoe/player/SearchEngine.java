@@ -0,0 +1,31 @@
+package org.silcos.tictactoe.player;
+
+/**
+ * Finds a move for the side to move on a <tt>BitBoard</tt> position. A <tt>
+ * ComputerPlayer</tt> playing in <tt>Mode.HARD</tt> delegates its moves to
+ * a <tt>SearchEngine</tt>, which may keep state (like caches or search trees)
+ * from one move of the game to the next.
+ * 
+ * @author Shukant Pal
+ */
+public interface SearchEngine {
+	
+	/**
+	 * Searches the given position and returns the best move found within the
+	 * given time.
+	 * 
+	 * @param root - the position to be searched; it is not modified
+	 * @param timeBudget - the time given to the search, in milliseconds
+	 * @return - the index of the best move; -1, if the position has no empty
+	 * 			squares.
+	 */
+	int search(BitBoard root, long timeBudget);
+	
+	/**
+	 * Releases the threads held by this engine, when its player is closed.
+	 * Engines searching on the calling thread alone hold none.
+	 */
+	default void shutdown() {
+	}
+
+}
@@ -0,0 +1,134 @@
+package org.silcos.tictactoe.player;
+
+/**
+ * <p>
+ * Lists the eight symmetries of a square board - the four rotations and the
+ * four reflections - and maps squares through them. A position and its
+ * seven images have the same value, and the best moves in them are images of
+ * each other. Hence, search results can be cached & looked up under one
+ * <i>canonical</i> form of each position, which is chosen by <tt>BitBoard.
+ * getCanonicalTransform()</tt>.
+ * 
+ * <p>
+ * Each symmetry is identified by an index in <tt>[0, COUNT)</tt>, and maps
+ * the square <tt>(row, column)</tt> of a board with <tt>n = side - 1</tt> as
+ * given below:
+ * <ul>
+ * 		<li> <tt>IDENTITY</tt>: <tt>(row, column)</tt>
+ * 		<li> <tt>ROTATE_90</tt>: <tt>(column, n - row)</tt>
+ * 		<li> <tt>ROTATE_180</tt>: <tt>(n - row, n - column)</tt>
+ * 		<li> <tt>ROTATE_270</tt>: <tt>(n - column, row)</tt>
+ * 		<li> <tt>FLIP_ROWS</tt>: <tt>(n - row, column)</tt>
+ * 		<li> <tt>FLIP_COLUMNS</tt>: <tt>(row, n - column)</tt>
+ * 		<li> <tt>TRANSPOSE</tt>: <tt>(column, row)</tt>
+ * 		<li> <tt>ANTI_TRANSPOSE</tt>: <tt>(n - column, n - row)</tt>
+ * </ul>
+ * 
+ * <p>
+ * The square maps are precomputed once per board size.
+ * 
+ * @author Shukant Pal
+ */
+public final class Symmetry {
+	
+	public static final int IDENTITY = 0;
+	public static final int ROTATE_90 = 1;
+	public static final int ROTATE_180 = 2;
+	public static final int ROTATE_270 = 3;
+	public static final int FLIP_ROWS = 4;
+	public static final int FLIP_COLUMNS = 5;
+	public static final int TRANSPOSE = 6;
+	public static final int ANTI_TRANSPOSE = 7;
+	
+	/**
+	 * The no. of symmetries of a square board.
+	 */
+	public static final int COUNT = 8;
+	
+	/**
+	 * The square maps of each board side, indexed by symmetry and then by
+	 * square.
+	 */
+	private static final int[][][] mapsBySide = new int[BitBoard.MAX_SIDE + 1][][];
+	
+	static {
+		for(int side = BitBoard.MIN_SIDE; side <= BitBoard.MAX_SIDE; side++) {
+			int[][] maps = new int[COUNT][side * side];
+			
+			for(int transform = 0; transform < COUNT; transform++) {
+				for(int cell = 0; cell < side * side; cell++) {
+					maps[transform][cell] = computeImage(transform, cell, side);
+				}
+			}
+			
+			mapsBySide[side] = maps;
+		}
+	}
+	
+	private Symmetry() {
+	}
+	
+	private static int computeImage(int transform, int cell, int side) {
+		int row = cell / side;
+		int column = cell % side;
+		int last = side - 1;
+		
+		switch(transform) {
+		case IDENTITY:
+			return (row * side + column);
+		case ROTATE_90:
+			return (column * side + (last - row));
+		case ROTATE_180:
+			return ((last - row) * side + (last - column));
+		case ROTATE_270:
+			return ((last - column) * side + row);
+		case FLIP_ROWS:
+			return ((last - row) * side + column);
+		case FLIP_COLUMNS:
+			return (row * side + (last - column));
+		case TRANSPOSE:
+			return (column * side + row);
+		case ANTI_TRANSPOSE:
+			return ((last - column) * side + (last - row));
+		default:
+			throw new IllegalArgumentException("No symmetry has index " + transform);
+		}
+	}
+	
+	/**
+	 * Returns the square maps of a board of given side: <tt>maps[transform]
+	 * [cell]</tt> is the image of <tt>cell</tt> under <tt>transform</tt>.
+	 * The returned arrays must not be modified.
+	 */
+	static int[][] mapsFor(int side) {
+		BitBoard.masksFor(side);/* Validates the side */
+		return (mapsBySide[side]);
+	}
+	
+	/**
+	 * Returns the image of the given square under a symmetry.
+	 * 
+	 * @param transform - the index of the symmetry
+	 * @param cell - the index of the square, i.e. <tt>row * side + column</tt>
+	 * @param side - the side of the board
+	 */
+	public static int map(int transform, int cell, int side) {
+		return (mapsFor(side)[transform][cell]);
+	}
+	
+	/**
+	 * Returns the symmetry which undoes the given one. Only the quarter
+	 * rotations are not their own inverses.
+	 * 
+	 * @param transform - the index of the symmetry
+	 */
+	public static int inverse(int transform) {
+		if(transform == ROTATE_90)
+			return (ROTATE_270);
+		else if(transform == ROTATE_270)
+			return (ROTATE_90);
+		else
+			return (transform);
+	}
+
+}
@@ -0,0 +1,251 @@
+package org.silcos.tictactoe.player;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Fixed-size cache of search results keyed by the position hash (see
+ * <tt>Board.getPositionHash</tt>). Each entry holds the depth to which the
+ * position was searched, the bound type of its score, the score itself and
+ * the best move found.
+ * 
+ * <p>
+ * The table is split into buckets of two entries. The first entry of each
+ * bucket is depth-preferred: it is only replaced by a search of the same
+ * position or of equal or greater depth. The second entry is always
+ * replaced, so that recent shallow results are not lost.
+ * 
+ * <p>
+ * The table never grows after construction; its size is derived from the
+ * memory budget passed to the constructor. It counts hits, misses and
+ * collisions (misses where the bucket was held by other positions), so that
+ * the budget can be sized for each board.
+ * 
+ * <p>
+ * A table can be shared by several search threads without locking. Each
+ * entry stores its key XORed with its data, and a probe only accepts an
+ * entry whose stored key XOR data gives back the probed key. Hence, an
+ * entry torn by two threads writing it at once is rejected as a miss
+ * instead of returning the data of another position.
+ * 
+ * @author Shukant Pal
+ */
+public final class TranspositionTable {
+	
+	/**
+	 * The kind of score stored in an entry, depending on whether the search
+	 * of the position failed low, failed high or returned an exact score.
+	 * 
+	 * @author Shukant Pal
+	 */
+	public enum Bound {
+		EXACT,
+		LOWER,
+		UPPER
+	}
+	
+	/**
+	 * The memory budget used when none is specified, i.e. 4 MiB.
+	 */
+	public static final int DEFAULT_BUDGET = 4 << 20;
+	
+	/**
+	 * The no. of bytes used by each entry: one <tt>long</tt> for the key and
+	 * another for the packed data.
+	 */
+	public static final int ENTRY_BYTES = 16;
+	
+	/**
+	 * Returned by <tt>probe</tt> when the position is not in the table.
+	 */
+	public static final long NO_ENTRY = 0L;
+	
+	/**
+	 * The move stored when no best move is known.
+	 */
+	public static final int NO_MOVE = -1;
+	
+	private static final Bound[] bounds = Bound.values();
+	
+	private static final int MOVE_BITS = 8;
+	private static final int DEPTH_SHIFT = 8;
+	private static final int BOUND_SHIFT = 16;
+	private static final long VALID_BIT = 1L << 18;
+	private static final int SCORE_SHIFT = 32;
+	
+	private final long[] keys;
+	private final long[] data;
+	private final int bucketMask;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+	
+	/**
+	 * Instantiates a <tt>TranspositionTable</tt> using the default memory
+	 * budget.
+	 */
+	public TranspositionTable() {
+		this(DEFAULT_BUDGET);
+	}
+	
+	/**
+	 * Instantiates a <tt>TranspositionTable</tt> that uses at most <tt>
+	 * budget</tt> bytes for its entries. The no. of entries is rounded down
+	 * to a power of two.
+	 * 
+	 * @param budget - the memory budget of the table in bytes; it must hold
+	 * 					at least one bucket.
+	 */
+	public TranspositionTable(long budget) {
+		if(budget < 2 * ENTRY_BYTES)
+			throw new IllegalArgumentException("The budget must hold at least one bucket of " +
+					(2 * ENTRY_BYTES) + " bytes");
+		
+		long buckets = Long.highestOneBit(Math.min(budget / (2 * ENTRY_BYTES), 1L << 29));
+		
+		this.keys = new long[(int) buckets * 2];
+		this.data = new long[(int) buckets * 2];
+		this.bucketMask = (int) buckets - 1;
+	}
+	
+	private int bucketOf(long key) {
+		return (((int) (key ^ (key >>> 32)) & bucketMask) << 1);
+	}
+	
+	/**
+	 * Looks up the entry for the given position.
+	 * 
+	 * @param key - the position hash
+	 * @return - the packed entry, which can be decoded by <tt>depthOf</tt>,
+	 * 			<tt>boundOf</tt>, <tt>scoreOf</tt> and <tt>moveOf</tt>;
+	 * 			<tt>NO_ENTRY</tt>, if the position is not in the table.
+	 */
+	public long probe(long key) {
+		int bucket = bucketOf(key);
+		
+		for(int slot = bucket; slot < bucket + 2; slot++) {
+			long entry = data[slot];
+			
+			if(entry != NO_ENTRY && (keys[slot] ^ entry) == key) {
+				hits.increment();
+				return (entry);
+			}
+		}
+		
+		misses.increment();
+		
+		if(data[bucket] != NO_ENTRY || data[bucket + 1] != NO_ENTRY)
+			collisions.increment();
+		
+		return (NO_ENTRY);
+	}
+	
+	/**
+	 * Stores the result of searching the given position. The depth-preferred
+	 * entry of the bucket is used if it holds the same position, is empty or
+	 * holds a search of lesser or equal depth; otherwise the always-replace
+	 * entry is overwritten.
+	 * 
+	 * @param key - the position hash
+	 * @param depth - the remaining depth of the search, in [0, 255]
+	 * @param bound - the kind of score being stored
+	 * @param score - the score of the position for the side to move
+	 * @param move - the index of the best move; <tt>NO_MOVE</tt>, if unknown
+	 */
+	public void store(long key, int depth, Bound bound, int score, int move) {
+		int bucket = bucketOf(key);
+		long entry = pack(depth, bound, score, move);
+		long preferred = data[bucket];
+		int slot;
+		
+		if(preferred == NO_ENTRY || (keys[bucket] ^ preferred) == key
+				|| depth >= depthOf(preferred))
+			slot = bucket;
+		else
+			slot = bucket + 1;
+		
+		keys[slot] = key ^ entry;
+		data[slot] = entry;
+	}
+	
+	private static long pack(int depth, Bound bound, int score, int move) {
+		return (((long) score << SCORE_SHIFT)
+				| VALID_BIT
+				| ((long) bound.ordinal() << BOUND_SHIFT)
+				| ((long) (depth & 0xFF) << DEPTH_SHIFT)
+				| ((move + 1) & ((1 << MOVE_BITS) - 1)));
+	}
+	
+	public static int depthOf(long entry) {
+		return ((int) (entry >>> DEPTH_SHIFT) & 0xFF);
+	}
+	
+	public static Bound boundOf(long entry) {
+		return (bounds[(int) (entry >>> BOUND_SHIFT) & 0x3]);
+	}
+	
+	public static int scoreOf(long entry) {
+		return ((int) (entry >> SCORE_SHIFT));
+	}
+	
+	public static int moveOf(long entry) {
+		return ((int) (entry & ((1 << MOVE_BITS) - 1)) - 1);
+	}
+	
+	/**
+	 * Removes all entries from the table. The statistics are not reset.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		Arrays.fill(data, NO_ENTRY);
+	}
+	
+	/**
+	 * Returns the no. of entries the table can hold.
+	 */
+	public int getCapacity() {
+		return (keys.length);
+	}
+	
+	/**
+	 * Returns the no. of bytes used by the entries of this table.
+	 */
+	public long getMemoryUsage() {
+		return ((long) getCapacity() * ENTRY_BYTES);
+	}
+	
+	public long getHits() {
+		return (hits.sum());
+	}
+	
+	public long getMisses() {
+		return (misses.sum());
+	}
+	
+	/**
+	 * Returns the no. of misses in which the bucket of the position was
+	 * occupied by other positions.
+	 */
+	public long getCollisions() {
+		return (collisions.sum());
+	}
+	
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+		collisions.reset();
+	}
+	
+	@Override
+	public String toString() {
+		long hitCount = getHits();
+		long probes = hitCount + getMisses();
+		
+		return ("TranspositionTable[" + getCapacity() + " entries, " + (getMemoryUsage() >> 10) +
+				" KiB, hits=" + hitCount + ", misses=" + getMisses() + ", collisions=" +
+				getCollisions() + ", hit-rate=" + (probes == 0 ? 0 : (100 * hitCount / probes)) + "%]");
+	}
+
+}
@@ -4,6 +4,8 @@ import org.silcos.tictactoe.GameController;
 import org.silcos.tictactoe.GameController.GameEvent;
 import org.silcos.tictactoe.GameController.GameWonEvent;
 import org.silcos.tictactoe.MoveType;
+import org.silcos.tictactoe.UserPreferences;
+import org.silcos.tictactoe.player.ComputerPlayer;
 import org.silcos.tictactoe.ui.board.BoardButton;
 import org.silcos.tictactoe.ui.board.BoardButtonFactory;
 
@@ -46,6 +48,10 @@ public class TicTacToeWindow {
 	public static final String expertBoard = "7x7 | Expert";
 	public static final String gmBoard = "9x9 | Grandmaster";
 	
+	public static final String easyLevel = "Easy";
+	public static final String mediumLevel = "Medium";
+	public static final String hardLevel = "Hard";
+	
 	private static final RowConstraints boardRowConstraints = new RowConstraints();
 	private static final ColumnConstraints boardColumnConstraints = new ColumnConstraints(); 
 	
@@ -93,6 +99,32 @@ public class TicTacToeWindow {
 		}
 	}
 	
+	@FXML
+	private void handleLevelChangerAction(ActionEvent e) {
+		if(game().isSinglePlayer()) {
+			ComputerPlayer.Mode newMode;
+			
+			switch(((MenuItem) e.getSource()).getText()) {
+			case easyLevel:
+				newMode = ComputerPlayer.Mode.EASY;
+				break;
+			case hardLevel:
+				newMode = ComputerPlayer.Mode.HARD;
+				break;
+			case mediumLevel:
+			default:
+				newMode = ComputerPlayer.Mode.MEDIUM;
+				break;
+			}
+			
+			UserPreferences.getDefaultSettings().setComputerMode(newMode);
+			game().close();
+			gameController = appContext.getControllerFactory()
+					.newSinglePlayerGameController(game().getBoardSize());
+			buildBoard(this);
+		}
+	}
+	
 	public TicTacToeWindow(TicTacToeApp appContext, GameController gameInstance) {
 		this.appContext = appContext;
 		this.gameController = gameInstance;
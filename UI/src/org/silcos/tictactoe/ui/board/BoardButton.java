@@ -1,6 +1,9 @@
 package org.silcos.tictactoe.ui.board;
 
+import java.util.concurrent.CancellationException;
+
 import org.silcos.tictactoe.GameController;
+import org.silcos.tictactoe.MoveResult;
 import org.silcos.tictactoe.player.HumanPlayer;
 
 import javafx.event.EventHandler;
@@ -29,7 +32,15 @@ public class BoardButton extends Button {
 				HumanPlayer mover = target.getNextMover();
 				
 				if(mover != null) {
-					mover.playAt(src.getRow(), src.getColumn());
+					int row = src.getRow();
+					int column = src.getColumn();
+					
+					// The move is cancelled, not failed, when the game is closed
+					mover.playAt(row, column).whenComplete((MoveResult result, Throwable error) -> {
+						if(error != null && !(error instanceof CancellationException))
+							System.err.println("Warning *:* Move at (" + row + "," + column
+									+ ") failed: " + error);
+					});
 				} else {
 					System.out.println("Warning *:* Human player tried moving while it was " +
 										"computer's turn, .i.e. mover = null");